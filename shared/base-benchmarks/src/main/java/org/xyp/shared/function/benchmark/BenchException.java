@@ -0,0 +1,14 @@
+package org.xyp.shared.function.benchmark;
+
+/**
+ * thrown by the failing step of each chain, without stack trace so the benchmarks
+ * measure the wrappers instead of filling stack traces
+ */
+final class BenchException extends RuntimeException {
+
+    static final BenchException INSTANCE = new BenchException();
+
+    private BenchException() {
+        super("failing step", null, false, false);
+    }
+}
@@ -0,0 +1,125 @@
+package org.xyp.shared.function.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyp.shared.function.wrapper.Result;
+import org.xyp.shared.function.wrapper.ResultOrError;
+import org.xyp.shared.function.wrapper.StackCapture;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * a chain of chainLength steps, map for most of them, filter every 5th, flatMap every 10th,
+ * against the same steps written with try / catch and with {@link Optional}<br/>
+ * with failing, the step in the middle throws; build* includes building the chain
+ * as hot paths do, run* evaluates a chain built once<br/>
+ * run with -prof gc for bytes per op (gc.alloc.rate.norm)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ResultOrErrorBenchmark {
+
+    @Param({"1", "5", "20", "50"})
+    int chainLength;
+
+    @Param({"false", "true"})
+    boolean failing;
+
+    @Param({"ALWAYS", "ON_ERROR", "NO_TRACE"})
+    StackCapture capture;
+
+    int failAt;
+    ResultOrError<Integer> prebuilt;
+
+    @Setup
+    public void setup() {
+        failAt = failing ? chainLength / 2 : -1;
+        prebuilt = chain();
+    }
+
+    ResultOrError<Integer> chain() {
+        var chain = ResultOrError.withStackCapture(capture).on(() -> 0);
+        for (int i = 0; i < chainLength; i++) {
+            final int index = i;
+            if (i == failAt) {
+                chain = chain.map(v -> {
+                    throw BenchException.INSTANCE;
+                });
+            } else if (i % 10 == 9) {
+                chain = chain.flatMap(v -> ResultOrError.withStackCapture(capture).of(v + index));
+            } else if (i % 5 == 4) {
+                chain = chain.filter(v -> v >= 0);
+            } else {
+                chain = chain.map(v -> v + index);
+            }
+        }
+        return chain;
+    }
+
+    @Benchmark
+    public Result<Integer, Throwable> buildAndRun() {
+        return chain().getResult();
+    }
+
+    @Benchmark
+    public Result<Integer, Throwable> run() {
+        return prebuilt.getResult();
+    }
+
+    @Benchmark
+    public Integer tryCatch() {
+        try {
+            int v = 0;
+            for (int i = 0; i < chainLength; i++) {
+                if (i == failAt) {
+                    throw BenchException.INSTANCE;
+                } else if (i % 5 == 4 && v < 0) {
+                    return null;
+                } else if (i % 5 != 4) {
+                    v = v + i;
+                }
+            }
+            return v;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Benchmark
+    public Optional<Integer> optional() {
+        try {
+            var chain = Optional.of(0);
+            for (int i = 0; i < chainLength; i++) {
+                final int index = i;
+                if (i == failAt) {
+                    chain = chain.map(v -> {
+                        throw BenchException.INSTANCE;
+                    });
+                } else if (i % 10 == 9) {
+                    chain = chain.flatMap(v -> Optional.of(v + index));
+                } else if (i % 5 == 4) {
+                    chain = chain.filter(v -> v >= 0);
+                } else {
+                    chain = chain.map(v -> v + index);
+                }
+            }
+            return chain;
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+}
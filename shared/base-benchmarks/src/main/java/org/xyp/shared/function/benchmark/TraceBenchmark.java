@@ -0,0 +1,70 @@
+package org.xyp.shared.function.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.xyp.shared.function.wrapper.Result;
+import org.xyp.shared.function.wrapper.ResultOrError;
+import org.xyp.shared.function.wrapper.TraceRingBuffer;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Result#traceDebugOrError} of an evaluated chain, the trace goes to a blackhole<br/>
+ * enabled renders the whole trace, disabled only asks whether to log, events emits it into a ring buffer
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TraceBenchmark {
+
+    @Param({"1", "5", "20", "50"})
+    int chainLength;
+
+    @Param({"false", "true"})
+    boolean failing;
+
+    Result<String, Throwable> result;
+
+    final TraceRingBuffer ringBuffer = new TraceRingBuffer(1024);
+
+    @Setup
+    public void setup() {
+        var chain = ResultOrError.on(() -> "value");
+        for (int i = 0; i < chainLength; i++) {
+            chain = failing && i == chainLength / 2
+                ? chain.map(v -> {
+                    throw BenchException.INSTANCE;
+                })
+                : chain.map(v -> v);
+        }
+        result = chain.getResult();
+    }
+
+    @Benchmark
+    public Result<String, Throwable> traceEnabled(Blackhole blackhole) {
+        return result.traceDebugOrError(() -> true, blackhole::consume, () -> true, blackhole::consume);
+    }
+
+    @Benchmark
+    public Result<String, Throwable> traceDisabled(Blackhole blackhole) {
+        return result.traceDebugOrError(() -> false, blackhole::consume, () -> false, blackhole::consume);
+    }
+
+    @Benchmark
+    public Result<String, Throwable> traceEvents() {
+        return result.emitTrace(ringBuffer, 1);
+    }
+}
@@ -0,0 +1,89 @@
+package org.xyp.shared.function.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyp.shared.function.wrapper.Result;
+import org.xyp.shared.function.wrapper.StackCapture;
+import org.xyp.shared.function.wrapper.WithCloseable;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * open, chainLength maps and closeAndGetResult of {@link WithCloseable},
+ * against the same steps in try-with-resources, with failing the map in the middle throws<br/>
+ * run with -prof gc for bytes per op (gc.alloc.rate.norm)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WithCloseableBenchmark {
+
+    @Param({"1", "5", "20", "50"})
+    int chainLength;
+
+    @Param({"false", "true"})
+    boolean failing;
+
+    @Param({"ALWAYS", "ON_ERROR", "OFF"})
+    StackCapture capture;
+
+    int failAt;
+
+    static final class Resource implements AutoCloseable {
+        int value;
+
+        @Override
+        public void close() {
+            value = -1;
+        }
+    }
+
+    @Setup
+    public void setup() {
+        failAt = failing ? chainLength / 2 : -1;
+    }
+
+    @Benchmark
+    public Result<Integer, Throwable> withCloseable() {
+        var chain = WithCloseable.withStackCapture(capture)
+            .open(Resource::new)
+            .map(r -> r.value);
+        for (int i = 1; i < chainLength; i++) {
+            final int index = i;
+            chain = i == failAt
+                ? chain.map(v -> {
+                    throw BenchException.INSTANCE;
+                })
+                : chain.map(v -> v + index);
+        }
+        return chain.closeAndGetResult();
+    }
+
+    @Benchmark
+    public Integer tryWithResources() {
+        try (var resource = new Resource()) {
+            int v = resource.value;
+            for (int i = 1; i < chainLength; i++) {
+                if (i == failAt) {
+                    throw BenchException.INSTANCE;
+                }
+                v = v + i;
+            }
+            return v;
+        } catch (RuntimeException e) {
+            return null;
+        }
+    }
+}
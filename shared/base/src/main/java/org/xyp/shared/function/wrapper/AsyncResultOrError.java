@@ -0,0 +1,348 @@
+package org.xyp.shared.function.wrapper;
+
+import lombok.val;
+import org.xyp.shared.function.ExceptionalBiFunction;
+import org.xyp.shared.function.ExceptionalConsumer;
+import org.xyp.shared.function.ExceptionalFunction;
+import org.xyp.shared.function.ExceptionalSupplier;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+import static org.xyp.shared.function.wrapper.StackCapture.NO_TRACE;
+
+/**
+ * {@link ResultOrError} whose steps may run on an executor, virtual threads by default<br/>
+ * lazy as well, nothing runs before {@link #toFuture()} or {@link #join()}, each of them runs the chain again<br/>
+ * map / flatMap run on the thread completing the previous step, mapAsync / flatMapAsync on the executor;
+ * frames are captured where the chain is built, so the trace is the same as of a {@link ResultOrError}
+ * whichever threads ran the steps<br/>
+ * {@link #zip} and {@link #allOf} run independent branches concurrently, a failed branch fails the whole,
+ * the stack of each branch is kept as child
+ *
+ * @param <R>
+ */
+public class AsyncResultOrError<R> {
+
+    private static final Executor VIRTUAL_THREADS = command -> Thread.ofVirtual().name("async-result-or-error").start(command);
+
+    private final Supplier<CompletableFuture<StackStepInfo<R>>> supplier;
+    private final Executor executor;
+    private final StackCapture capture;
+
+    private AsyncResultOrError(
+        Supplier<CompletableFuture<StackStepInfo<R>>> supplier,
+        Executor executor,
+        StackCapture capture
+    ) {
+        this.supplier = supplier;
+        this.executor = executor;
+        this.capture = capture;
+    }
+
+    public static Executor virtualThreads() {
+        return VIRTUAL_THREADS;
+    }
+
+    public static <R> AsyncResultOrError<R> supplyAsync(ExceptionalSupplier<R> supplier) {
+        return supplyAsync(supplier, VIRTUAL_THREADS);
+    }
+
+    public static <R> AsyncResultOrError<R> supplyAsync(ExceptionalSupplier<R> supplier, Executor executor) {
+        val capture = StackCapture.defaultCapture().forNewChain();
+        final var frame = capture.frame();
+        return new AsyncResultOrError<>(
+            () -> CompletableFuture.supplyAsync(() -> {
+                try {
+                    return new StackStepInfo<>(frame, null, null, supplier.get(), null);
+                } catch (Throwable throwable) {
+                    return new StackStepInfo<>(frame, null, null, null, throwable);
+                }
+            }, executor),
+            executor,
+            capture
+        );
+    }
+
+    /**
+     * runs the chain on the executor
+     */
+    public static <R> AsyncResultOrError<R> from(ResultOrError<R> resultOrError, Executor executor) {
+        final var frame = resultOrError.capture().frame();
+        return new AsyncResultOrError<>(
+            () -> CompletableFuture.supplyAsync(() -> resultOrError.stepInfo(frame), executor),
+            executor,
+            resultOrError.capture()
+        );
+    }
+
+    public static <R> AsyncResultOrError<R> from(ResultOrError<R> resultOrError) {
+        return from(resultOrError, VIRTUAL_THREADS);
+    }
+
+    /**
+     * steps after this one run their async parts on the given executor
+     */
+    public AsyncResultOrError<R> withExecutor(Executor newExecutor) {
+        return new AsyncResultOrError<>(supplier, newExecutor, capture);
+    }
+
+    private <U> AsyncResultOrError<U> then(Function<StackStepInfo<R>, StackStepInfo<U>> step) {
+        return new AsyncResultOrError<>(() -> supplier.get().thenApply(step), executor, capture);
+    }
+
+    private <U> AsyncResultOrError<U> thenAsync(Function<StackStepInfo<R>, StackStepInfo<U>> step) {
+        return new AsyncResultOrError<>(() -> supplier.get().thenApplyAsync(step, executor), executor, capture);
+    }
+
+    public <U> AsyncResultOrError<U> map(ExceptionalFunction<? super R, ? extends U> mapper) {
+        final var frame = capture.frame();
+        return then(prev -> mapStep(mapper, prev, frame));
+    }
+
+    public <U> AsyncResultOrError<U> mapAsync(ExceptionalFunction<? super R, ? extends U> mapper) {
+        final var frame = capture.frame();
+        return thenAsync(prev -> mapStep(mapper, prev, frame));
+    }
+
+    public AsyncResultOrError<R> filter(Predicate<? super R> predicate) {
+        final var frame = capture.frame();
+        return then(prev -> {
+            if (prev.isError()) {
+                return prev;
+            }
+            final var lastOutput = prev.output();
+            try {
+                if (null != lastOutput && predicate.test(lastOutput)) {
+                    return prev;
+                }
+                return new StackStepInfo<>(frame, link(prev), null, null, null);
+            } catch (Throwable throwable) {
+                return new StackStepInfo<>(frame, link(prev), lastOutput, null, throwable);
+            }
+        });
+    }
+
+    public AsyncResultOrError<R> consume(ExceptionalConsumer<? super R> consumer) {
+        final var frame = capture.frame();
+        return then(prev -> {
+            final var lastOutput = prev.output();
+            if (prev.isError() || null == lastOutput) {
+                return prev;
+            }
+            try {
+                consumer.accept(lastOutput);
+                return new StackStepInfo<>(frame, link(prev), lastOutput, lastOutput, null);
+            } catch (Throwable throwable) {
+                return new StackStepInfo<>(frame, link(prev), lastOutput, null, throwable);
+            }
+        });
+    }
+
+    public AsyncResultOrError<R> doOnError(ExceptionalConsumer<? super Throwable> consumer) {
+        final var frame = capture.frame();
+        return then(prev -> {
+            if (!prev.isError()) {
+                return prev;
+            }
+            try {
+                consumer.accept(prev.throwable());
+                return new StackStepInfo<>(frame, link(prev), prev.output(), null, prev.throwable());
+            } catch (Throwable throwable) {
+                return new StackStepInfo<>(frame, link(prev), prev.output(), null, throwable);
+            }
+        });
+    }
+
+    public AsyncResultOrError<R> mapOnError(ExceptionalFunction<Throwable, ? extends R> mapper) {
+        final var frame = capture.frame();
+        return then(prev -> {
+            if (!prev.isError()) {
+                return prev;
+            }
+            try {
+                return new StackStepInfo<>(frame, link(prev), prev.throwable(), mapper.apply(prev.throwable()), null);
+            } catch (Throwable throwable) {
+                return new StackStepInfo<>(frame, link(prev), prev.output(), null, throwable);
+            }
+        });
+    }
+
+    /**
+     * the returned chain runs on the thread completing the previous step
+     */
+    public <U> AsyncResultOrError<U> flatMap(Function<? super R, ResultOrError<U>> mapper) {
+        final var frame = capture.frame();
+        return then(prev -> {
+            final var lastOutput = prev.output();
+            if (prev.isError() || null == lastOutput) {
+                return cast(prev);
+            }
+            try {
+                val mapperROE = mapper.apply(lastOutput);
+                return withChild(frame, prev, lastOutput, mapperROE.supplier().get());
+            } catch (Throwable throwable) {
+                return new StackStepInfo<>(frame, link(prev), lastOutput, null, throwable);
+            }
+        });
+    }
+
+    public <U> AsyncResultOrError<U> flatMapAsync(Function<? super R, AsyncResultOrError<U>> mapper) {
+        final var frame = capture.frame();
+        return new AsyncResultOrError<>(
+            () -> supplier.get().thenCompose(prev -> {
+                final var lastOutput = prev.output();
+                if (prev.isError() || null == lastOutput) {
+                    return CompletableFuture.completedFuture(AsyncResultOrError.<U>cast(prev));
+                }
+                try {
+                    return mapper.apply(lastOutput).supplier.get()
+                        .thenApply(childStack -> withChild(frame, prev, lastOutput, childStack));
+                } catch (Throwable throwable) {
+                    return CompletableFuture.completedFuture(new StackStepInfo<>(frame, link(prev), lastOutput, null, throwable));
+                }
+            }),
+            executor,
+            capture
+        );
+    }
+
+    /**
+     * both run concurrently, combined when both succeed; the stack of first is the previous of the zip step,
+     * the stack of second its child
+     */
+    public static <A, B, R> AsyncResultOrError<R> zip(
+        AsyncResultOrError<A> first,
+        AsyncResultOrError<B> second,
+        ExceptionalBiFunction<? super A, ? super B, ? extends R> combiner
+    ) {
+        final var frame = first.capture.frame();
+        return new AsyncResultOrError<>(
+            () -> first.supplier.get().thenCombine(second.supplier.get(), (a, b) -> {
+                if (a.isError()) {
+                    return step(frame, first.link(a), a.output(), null, a.throwable(), b);
+                } else if (b.isError()) {
+                    return step(frame, first.link(a), a.output(), null, b.throwable(), b);
+                } else if (null == a.output() || null == b.output()) {
+                    return step(frame, first.link(a), a.output(), null, null, b);
+                }
+                try {
+                    return step(frame, first.link(a), a.output(), combiner.apply(a.output(), b.output()), null, b);
+                } catch (Throwable throwable) {
+                    return step(frame, first.link(a), a.output(), null, throwable, b);
+                }
+            }),
+            first.executor,
+            first.capture
+        );
+    }
+
+    /**
+     * all run concurrently, outputs in the given order; fails with the error of the first failed one in that order<br/>
+     * the stack has one step per branch, with the index as input and the stack of the branch as child
+     */
+    public static <R> AsyncResultOrError<List<R>> allOf(List<AsyncResultOrError<R>> branches) {
+        val capture = StackCapture.defaultCapture().forNewChain();
+        final var frame = capture.frame();
+        return new AsyncResultOrError<>(
+            () -> {
+                val futures = branches.stream().map(b -> b.supplier.get()).toList();
+                return CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new))
+                    .thenApply(ignored -> {
+                        StackStepInfo<?> last = null;
+                        Throwable firstError = null;
+                        val outputs = new ArrayList<R>(futures.size());
+                        for (int i = 0; i < futures.size(); i++) {
+                            val branchStack = futures.get(i).join();
+                            last = step(frame, NO_TRACE == capture ? null : last, i, branchStack.output(), branchStack.throwable(), branchStack);
+                            outputs.add(branchStack.output());
+                            if (null == firstError && branchStack.isError()) {
+                                firstError = branchStack.throwable();
+                            }
+                        }
+                        return null == firstError
+                            ? new StackStepInfo<>(frame, last, null, Collections.unmodifiableList(outputs), null)
+                            : new StackStepInfo<>(frame, last, null, null, firstError);
+                    });
+            },
+            VIRTUAL_THREADS,
+            capture
+        );
+    }
+
+    /**
+     * starts the chain, the future never completes exceptionally, errors are in the result
+     */
+    public CompletableFuture<Result<R, Throwable>> toFuture() {
+        final var frame = capture.frame();
+        return supplier.get().thenApply(res -> {
+            final var terminal = NO_TRACE == capture
+                ? res
+                : new StackStepInfo<>(frame, res, res.input(), res.output(), res.throwable());
+            return res.isError()
+                ? Result.failure(res.throwable(), terminal)
+                : Result.success(res.output(), terminal);
+        });
+    }
+
+    public Result<R, Throwable> join() {
+        return toFuture().join();
+    }
+
+    private <U> StackStepInfo<U> mapStep(
+        ExceptionalFunction<? super R, ? extends U> mapper,
+        StackStepInfo<R> prev,
+        StackWalker.StackFrame frame
+    ) {
+        final var lastOutput = prev.output();
+        if (prev.isError() || null == lastOutput) {
+            return cast(prev);
+        }
+        try {
+            return new StackStepInfo<>(frame, link(prev), lastOutput, mapper.apply(lastOutput), null);
+        } catch (Throwable throwable) {
+            return new StackStepInfo<>(frame, link(prev), lastOutput, null, throwable);
+        }
+    }
+
+    private <U> StackStepInfo<U> withChild(
+        StackWalker.StackFrame frame,
+        StackStepInfo<?> prev,
+        Object input,
+        StackStepInfo<U> childStack
+    ) {
+        return childStack.isError()
+            ? new StackStepInfo<>(frame, link(prev), input, null, childStack.throwable(), childStack)
+            : new StackStepInfo<>(frame, link(prev), input, childStack.output(), null, childStack);
+    }
+
+    /**
+     * with {@link StackCapture#NO_TRACE} a step keeps no previous one
+     */
+    private StackStepInfo<?> link(StackStepInfo<?> prev) {
+        return NO_TRACE == capture ? null : prev;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <U> StackStepInfo<U> cast(StackStepInfo<?> stepInfo) {
+        return (StackStepInfo<U>) stepInfo;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static <U> StackStepInfo<U> step(
+        StackWalker.StackFrame frame,
+        StackStepInfo<?> previous,
+        Object input,
+        Object output,
+        Throwable throwable,
+        StackStepInfo<?> child
+    ) {
+        return new StackStepInfo<>(frame, previous, input, (U) output, throwable, (StackStepInfo) child);
+    }
+}
@@ -0,0 +1,94 @@
+package org.xyp.shared.function.wrapper;
+
+import lombok.val;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Semaphore;
+import java.util.function.IntConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.stream.IntStream;
+
+/**
+ * how {@link ResultOrError#traverse} runs the elements<br/>
+ * SEQUENTIAL on the calling thread, forkJoin on a fork join pool, whose parallelism is the limit,
+ * virtualThreads one virtual thread per element with at most maxConcurrency running at once<br/>
+ * all of them return when every element is done
+ */
+public final class Parallelism {
+
+    public static final Parallelism SEQUENTIAL = new Parallelism(null, 1);
+
+    private final ForkJoinPool pool;
+    private final int maxConcurrency;
+
+    private Parallelism(ForkJoinPool pool, int maxConcurrency) {
+        this.pool = pool;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public static Parallelism forkJoin() {
+        return forkJoin(ForkJoinPool.commonPool());
+    }
+
+    public static Parallelism forkJoin(ForkJoinPool pool) {
+        return new Parallelism(pool, pool.getParallelism());
+    }
+
+    /**
+     * for blocking work, e.g. remote calls or jdbc, the limit protects what is called
+     */
+    public static Parallelism virtualThreads(int maxConcurrency) {
+        if (maxConcurrency < 1) {
+            throw new IllegalArgumentException("max concurrency must be positive, got " + maxConcurrency);
+        }
+        return new Parallelism(null, maxConcurrency);
+    }
+
+    /**
+     * an action throwing, or failing to start, is passed to onFailure with its index, the other indexes still run
+     */
+    void forEach(int size, IntConsumer action, ObjIntConsumer<Throwable> onFailure) {
+        final IntConsumer guarded = index -> {
+            try {
+                action.accept(index);
+            } catch (Throwable throwable) {
+                onFailure.accept(throwable, index);
+            }
+        };
+        if (size <= 1 || maxConcurrency == 1) {
+            IntStream.range(0, size).forEach(guarded);
+        } else if (null != pool) {
+            // a parallel stream started inside a pool forks into that pool
+            pool.submit(() -> IntStream.range(0, size).parallel().forEach(guarded)).join();
+        } else {
+            val permits = new Semaphore(maxConcurrency);
+            try (val executor = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < size; i++) {
+                    permits.acquireUninterruptibly();
+                    final int index = i;
+                    try {
+                        executor.execute(() -> {
+                            try {
+                                guarded.accept(index);
+                            } finally {
+                                permits.release();
+                            }
+                        });
+                    } catch (Throwable throwable) {
+                        permits.release();
+                        onFailure.accept(throwable, index);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        if (this == SEQUENTIAL) {
+            return "sequential";
+        }
+        return (null == pool ? "virtual threads" : "fork join") + " of " + maxConcurrency;
+    }
+}
@@ -0,0 +1,128 @@
+package org.xyp.shared.function.wrapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * outcome of {@link ResultOrError#traverse} and {@link ResultOrError#sequence}, element order is kept<br/>
+ * successes keep only the outputs, failures keep the element, its index and the steps of the failed element<br/>
+ * empty outputs (e.g. filtered) are successes of null
+ *
+ * @param <T> element
+ * @param <R> output
+ */
+public class Partitioned<T, R> {
+
+    public record ElementFailure<T>(int index, T element, Throwable error, StackStepInfo<?> stackStepInfo) {
+    }
+
+    private final List<R> successes;
+    private final List<ElementFailure<T>> failures;
+
+    Partitioned(List<R> successes, List<ElementFailure<T>> failures) {
+        this.successes = Collections.unmodifiableList(successes);
+        this.failures = Collections.unmodifiableList(failures);
+    }
+
+    public List<R> successes() {
+        return successes;
+    }
+
+    public List<ElementFailure<T>> failures() {
+        return failures;
+    }
+
+    public boolean isAllSuccess() {
+        return failures.isEmpty();
+    }
+
+    public int size() {
+        return successes.size() + failures.size();
+    }
+
+    /**
+     * all outputs, or the error and steps of the first failed element
+     */
+    @SuppressWarnings("unchecked")
+    public Result<List<R>, Throwable> toResult() {
+        if (failures.isEmpty()) {
+            return Result.success(successes, null);
+        }
+        final var first = failures.getFirst();
+        return Result.failure(first.error(), (StackStepInfo<List<R>>) first.stackStepInfo());
+    }
+
+    /**
+     * collects element outcomes, outcomes of one element are set by one thread, read after all are done
+     */
+    static final class Slots<T, R> {
+        private final List<? extends T> elements;
+        private final Object[] outputs;
+        private final StackStepInfo<?>[] failed;
+
+        Slots(List<? extends T> elements) {
+            this.elements = elements;
+            this.outputs = new Object[elements.size()];
+            this.failed = new StackStepInfo<?>[elements.size()];
+        }
+
+        T element(int index) {
+            return elements.get(index);
+        }
+
+        void success(int index, Object output) {
+            outputs[index] = output;
+        }
+
+        void failure(int index, StackStepInfo<?> stepInfo) {
+            failed[index] = stepInfo;
+        }
+
+        @SuppressWarnings("unchecked")
+        Partitioned<T, R> toPartitioned() {
+            final var successes = new ArrayList<R>(outputs.length);
+            final var failures = new ArrayList<ElementFailure<T>>();
+            for (int i = 0; i < outputs.length; i++) {
+                if (null == failed[i]) {
+                    successes.add((R) outputs[i]);
+                } else {
+                    failures.add(new ElementFailure<>(i, elements.get(i), failed[i].throwable(), failed[i]));
+                }
+            }
+            return new Partitioned<>(successes, failures);
+        }
+    }
+
+    /**
+     * container of the collectors, merged in encounter order so failure indexes stay those of the stream
+     */
+    static final class Accumulator<T, R> {
+        private final List<R> successes = new ArrayList<>();
+        private final List<ElementFailure<T>> failures = new ArrayList<>();
+        private int count;
+
+        void success(R output) {
+            successes.add(output);
+            count++;
+        }
+
+        void failure(T element, StackStepInfo<?> stepInfo) {
+            failures.add(new ElementFailure<>(count, element, stepInfo.throwable(), stepInfo));
+            count++;
+        }
+
+        Accumulator<T, R> merge(Accumulator<T, R> right) {
+            successes.addAll(right.successes);
+            for (final var failure : right.failures) {
+                failures.add(new ElementFailure<>(count + failure.index(), failure.element(), failure.error(), failure.stackStepInfo()));
+            }
+            count += right.count;
+            return this;
+        }
+
+        Partitioned<T, R> toPartitioned() {
+            return new Partitioned<>(successes, failures);
+        }
+    }
+}
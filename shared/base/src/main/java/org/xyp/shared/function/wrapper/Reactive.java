@@ -0,0 +1,130 @@
+package org.xyp.shared.function.wrapper;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyp.shared.function.ExceptionalFunction;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * reactor adapters of {@link ResultOrError} and {@link WithCloseable}, reactor-core is an optional dependency of this
+ * module, the caller brings it<br/>
+ * nothing runs before subscription and every subscription runs the chain again,
+ * a failed chain signals {@link ResultOrErrorException} with the steps, a null output completes empty<br/>
+ * the chains run on the subscribing thread, use subscribeOn for blocking ones
+ */
+@Slf4j
+public final class Reactive {
+
+    private Reactive() {
+    }
+
+    public static <R> Mono<R> mono(ResultOrError<R> resultOrError) {
+        return result(resultOrError).flatMap(Reactive::unwrap);
+    }
+
+    /**
+     * never signals an error, a failed chain emits its failure
+     */
+    public static <R> Mono<Result<R, Throwable>> result(ResultOrError<R> resultOrError) {
+        final var frame = resultOrError.capture().frame();
+        return Mono.fromSupplier(() -> resultOrError.getResult(frame));
+    }
+
+    /**
+     * the closeable is closed when the mono completes, fails or is cancelled
+     */
+    public static <C extends AutoCloseable, T> Mono<T> mono(WithCloseable<C, T> withCloseable) {
+        final var frame = withCloseable.capture.frame();
+        return Mono.usingWhen(
+            Mono.fromSupplier(withCloseable.closeableSupplier),
+            stack -> {
+                if (!stack.isError()) {
+                    return Mono.justOrEmpty(stack.output());
+                }
+                return Mono.error(failed(withCloseable, stack, frame));
+            },
+            Reactive::close,
+            (stack, throwable) -> close(stack),
+            Reactive::close
+        );
+    }
+
+    /**
+     * elements of the stream are emitted while the closeable is open,
+     * it is closed when the flux completes, fails or is cancelled
+     */
+    public static <C extends AutoCloseable, E> Flux<E> flux(WithCloseable<C, ? extends Stream<E>> withCloseable) {
+        final var frame = withCloseable.capture.frame();
+        return Flux.using(
+            withCloseable.closeableSupplier::get,
+            stack -> {
+                if (stack.isError()) {
+                    return Flux.error(failed(withCloseable, stack, frame));
+                }
+                final Stream<E> output = stack.output();
+                return null == output ? Flux.empty() : Flux.fromStream(output);
+            },
+            Reactive::closeQuietly
+        );
+    }
+
+    /**
+     * for {@link Flux#transform}, an element failing the mapper becomes a failure instead of ending the flux<br/>
+     * each result has one step, of the frame calling this
+     */
+    public static <T, R> Function<Flux<T>, Flux<Result<R, Throwable>>> mapToResult(
+        ExceptionalFunction<? super T, ? extends R> mapper
+    ) {
+        final var frame = StackCapture.defaultCapture().forNewChain().frame();
+        return flux -> flux.map(element -> {
+            try {
+                final R output = mapper.apply(element);
+                return Result.success(output, new StackStepInfo<>(frame, null, element, output, null));
+            } catch (Throwable throwable) {
+                return Result.failure(throwable, new StackStepInfo<>(frame, null, element, null, throwable));
+            }
+        });
+    }
+
+    private static <R> Mono<R> unwrap(Result<R, Throwable> result) {
+        if (result.isSuccess()) {
+            return Mono.justOrEmpty(result.get());
+        }
+        return Mono.error(new ResultOrErrorException(result.getError(), result.getStackStepInfo().orElse(null)));
+    }
+
+    private static <C extends AutoCloseable, T> ResultOrErrorException failed(
+        WithCloseable<C, ?> withCloseable,
+        StackStepInfoWithCloseable<C, T> stack,
+        StackWalker.StackFrame frame
+    ) {
+        final var closeable = stack.closeable();
+        try {
+            withCloseable.exceptionConsumer.accept(closeable, stack.throwable());
+        } catch (Throwable throwable) {
+            log.warn("exception consumer of closeable failed, {}", throwable.getMessage());
+        }
+        return new ResultOrErrorException(
+            stack.throwable(),
+            new StackStepInfoWithCloseable<>(frame, stack, closeable, stack.output(), stack.output(), stack.throwable())
+        );
+    }
+
+    private static Mono<Void> close(StackStepInfoWithCloseable<?, ?> stack) {
+        return Mono.fromCallable(() -> {
+            stack.close();
+            return stack;
+        }).then();
+    }
+
+    private static void closeQuietly(StackStepInfoWithCloseable<?, ?> stack) {
+        try {
+            stack.close();
+        } catch (Exception e) {
+            log.warn("close {} failed, {}", stack.closeable(), e.getMessage());
+        }
+    }
+}
@@ -78,4 +78,23 @@ public interface Result<T, E extends Throwable> {
         }
         return this;
     }
+
+    /**
+     * trace of a success at debug, of a failure at error, the level is checked before rendering
+     */
+    default Result<T, E> traceDebugOrError(Logger logger) {
+        return traceDebugOrError(logger::isDebugEnabled, logger::debug, logger::isErrorEnabled, logger::error);
+    }
+
+    /**
+     * structured trace events, of every failure and of one success in successSampleRate
+     */
+    default Result<T, E> emitTrace(TraceSink sink, int successSampleRate) {
+        try {
+            StackLogUtil.emitTrace(getStackStepInfo().orElse(null), sink, isSuccess() ? successSampleRate : 1);
+        } catch (Exception e) {
+            log.error(e.getMessage(), e);
+        }
+        return this;
+    }
 }
\ No newline at end of file
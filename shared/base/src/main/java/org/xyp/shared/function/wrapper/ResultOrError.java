@@ -6,260 +6,502 @@ import org.xyp.shared.function.ExceptionalFunction;
 import org.xyp.shared.function.ExceptionalRunnable;
 import org.xyp.shared.function.ExceptionalSupplier;
 
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Optional;
 import java.util.function.Function;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
+import java.util.stream.Collector;
 
 /**
- * map 函数为递归 lazy 调用，可以保留链式调用的调用栈<br/>
+ * map 函数为 lazy 调用，可以保留链式调用的调用栈<br/>
  * 返回值一旦有null则调用链中断<br/>
- * 由于是 lazy 调用， 因此最后需要用 getXXX 函数做真正的调用
+ * 由于是 lazy 调用， 因此最后需要用 getXXX 函数做真正的调用<br/>
+ * 调用时整条链被展开为数组在一个循环中执行，链再长也不会递归，不会 StackOverflowError<br/>
+ * 调用栈的记录方式见 {@link StackCapture}
  *
  * @param <R>
  */
 public class ResultOrError<R> {
 
-    private final Supplier<? extends StackStepInfo<R>> supplier;
+    /**
+     * one step of a chain, moves the cursor by {@link Cursor#record}, or leaves it as it is
+     */
+    @FunctionalInterface
+    interface Step {
+        void apply(Cursor cursor, StackWalker.StackFrame frame);
+    }
+
+    /**
+     * state of a chain being run, the output and error of the last recorded step<br/>
+     * with trace, each record is also linked as a {@link StackStepInfo}
+     */
+    static final class Cursor {
+        private final boolean trace;
+        private StackStepInfo<?> last;
+        private Object input;
+        private Object output;
+        private Throwable throwable;
+        private StackStepInfo<?> child;
+
+        Cursor(boolean trace) {
+            this.trace = trace;
+        }
+
+        boolean isError() {
+            return null != throwable;
+        }
+
+        @SuppressWarnings("unchecked")
+        <T> T output() {
+            return (T) output;
+        }
+
+        Throwable throwable() {
+            return throwable;
+        }
+
+        void record(StackWalker.StackFrame frame, Object input, Object output, Throwable throwable, StackStepInfo<?> child) {
+            this.input = input;
+            this.output = output;
+            this.throwable = throwable;
+            this.child = child;
+            if (trace) {
+                last = newStep(frame, last, input, output, throwable, child);
+            }
+        }
+
+        /**
+         * continues from steps run elsewhere, e.g. a {@link WithCloseable} chain
+         */
+        void adopt(StackStepInfo<?> stepInfo) {
+            this.input = stepInfo.input();
+            this.output = stepInfo.output();
+            this.throwable = stepInfo.throwable();
+            this.child = stepInfo.child();
+            this.last = stepInfo;
+        }
+
+        /**
+         * without trace only the final state is packed, no step before it is kept
+         */
+        @SuppressWarnings("unchecked")
+        <T> StackStepInfo<T> toStepInfo() {
+            if (trace) {
+                return (StackStepInfo<T>) last;
+            }
+            return newStep(null, null, input, output, throwable, child);
+        }
+
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        private static <T> StackStepInfo<T> newStep(
+            StackWalker.StackFrame frame,
+            StackStepInfo<?> previous,
+            Object input,
+            Object output,
+            Throwable throwable,
+            StackStepInfo<?> child
+        ) {
+            return new StackStepInfo<>(frame, previous, input, (T) output, throwable, (StackStepInfo) child);
+        }
+    }
+
+    public static final String MEMOIZE_PROPERTY = "xyp.function.memoize";
+
+    private static volatile boolean memoizeByDefault = Boolean.getBoolean(MEMOIZE_PROPERTY);
+
+    private final ResultOrError<?> parent;
+    private final StackWalker.StackFrame frame;
+    private final Step step;
+    private final int length;
+    private final StackCapture capture;
+    /**
+     * steps from the head to this one, built once on the first run
+     */
+    private volatile ResultOrError<?>[] compiled;
+    /**
+     * reads of a memoizing chain share one result
+     */
+    private final boolean memoizing;
+    private volatile Result<R, Throwable> memo;
+
+    private ResultOrError(ResultOrError<?> parent, StackWalker.StackFrame frame, Step step, StackCapture capture) {
+        this(parent, frame, step, capture, memoizeByDefault);
+    }
+
+    private ResultOrError(ResultOrError<?> parent, StackWalker.StackFrame frame, Step step, StackCapture capture, boolean memoizing) {
+        this.parent = parent;
+        this.frame = frame;
+        this.step = step;
+        this.length = null == parent ? 1 : parent.length + 1;
+        this.capture = capture;
+        this.memoizing = memoizing;
+    }
+
+    /**
+     * with true, get / getResult / getOption ... of every chain created afterward run it at most once
+     * and share the result, chains built on top of a read one still run all of its steps,
+     * use {@link #memoize()} for them<br/>
+     * also by system property {@link #MEMOIZE_PROPERTY}
+     */
+    public static void setMemoizeByDefault(boolean memoize) {
+        memoizeByDefault = memoize;
+    }
+
+    public static boolean isMemoizeByDefault() {
+        return memoizeByDefault;
+    }
+
+    /**
+     * a chain whose head is the given steps, e.g. of a {@link WithCloseable}
+     */
+    ResultOrError(Supplier<? extends StackStepInfo<R>> supplier, StackCapture capture) {
+        this(null, null, (cursor, ignored) -> cursor.adopt(supplier.get()), capture);
+    }
 
     Supplier<? extends StackStepInfo<R>> supplier() {
-        return supplier;
+        return this::run;
+    }
+
+    StackCapture capture() {
+        return capture;
     }
 
-    ResultOrError(Supplier<? extends StackStepInfo<R>> supplier) {
-        this.supplier = supplier;
+    /**
+     * the steps of a run, a memoizing chain runs at most once and shares them with its reads
+     */
+    StackStepInfo<R> stepInfo(StackWalker.StackFrame terminalFrame) {
+        if (!memoizing) {
+            return run();
+        }
+        return getResult(terminalFrame).getStackStepInfo().orElseThrow();
+    }
+
+    private <U> ResultOrError<U> then(Step next) {
+        return new ResultOrError<>(this, capture.frame(), next, capture);
+    }
+
+    private ResultOrError<?>[] compiled() {
+        var steps = compiled;
+        if (null == steps) {
+            steps = new ResultOrError<?>[length];
+            ResultOrError<?> current = this;
+            for (int i = length - 1; i >= 0; i--) {
+                steps[i] = current;
+                current = current.parent;
+            }
+            compiled = steps;
+        }
+        return steps;
+    }
+
+    private Cursor runSteps() {
+        val cursor = new Cursor(capture != StackCapture.NO_TRACE);
+        for (val current : compiled()) {
+            current.step.apply(cursor, current.frame);
+        }
+        return cursor;
     }
 
-    static StackWalker.StackFrame getStackStep() {
-        return StackWalker.getInstance()
-            .walk(stream -> stream.filter(s ->
-                    !s.toStackTraceElement().getClassName().equals(ResultOrError.class.getName())
-                        && !s.toStackTraceElement().getClassName().equals(WithCloseable.class.getName())
-                )
-                .findFirst())
-            .orElse(null);
+    private StackStepInfo<R> run() {
+        return runSteps().toStepInfo();
     }
 
     public static <T1> ResultOrError<T1> of(T1 t1) {
-        final var frame = getStackStep();
-        return new ResultOrError<>(() -> new StackStepInfo<>(frame, null, null, t1, null));
+        return withStackCapture(StackCapture.defaultCapture()).of(t1);
     }
 
     public static <R> ResultOrError<R> on(ExceptionalSupplier<R> supplier) {
-        final var frame = getStackStep();
-        return new ResultOrError<>(() -> {
-            try {
-                final var result = supplier.get();
-                return new StackStepInfo<>(frame, null, null, result, null);
-            } catch (Throwable throwable) {
-                return new StackStepInfo<>(frame, null, null, null, throwable);
-            }
-        });
+        return withStackCapture(StackCapture.defaultCapture()).on(supplier);
     }
 
     public static ResultOrError<Void> doRun(ExceptionalRunnable runner) {
-        final var frame = getStackStep();
-        return new ResultOrError<>(() -> {
-            try {
-                runner.run();
-                return new StackStepInfo<>(frame, null, null, null, null);
-            } catch (Throwable throwable) {
-                return new StackStepInfo<>(frame, null, null, null, throwable);
-            }
-        }
-        );
+        return withStackCapture(StackCapture.defaultCapture()).doRun(runner);
     }
 
-    public ResultOrError<R> filter(Predicate<? super R> predicate) {
-        final var frame = getStackStep();
-        return new ResultOrError<>(
-            () -> {
-                final var prevStack = supplier.get();
-                return getStackStepInfoByFilter(predicate, prevStack, frame);
-            }
-        );
+    /**
+     * starts a chain with its own {@link StackCapture}, all steps of the chain follow it
+     */
+    public static Builder withStackCapture(StackCapture capture) {
+        return new Builder(capture.forNewChain());
     }
 
-    static <R> StackStepInfo<R> getStackStepInfoByFilter(Predicate<? super R> predicate, StackStepInfo<R> prevStack, StackWalker.StackFrame frame) {
-        if (prevStack.isError()) {
-            return prevStack;
+    public static final class Builder {
+        private final StackCapture capture;
+
+        private Builder(StackCapture capture) {
+            this.capture = capture;
         }
-        final var lastOutput = prevStack.output();
-        try {
-            if (null != lastOutput && predicate.test(lastOutput)) {
-                return prevStack;
-            } else {
-                return new StackStepInfo<>(frame, prevStack, null, null, null);
-            }
-        } catch (Throwable throwable) {
-            return new StackStepInfo<>(frame, prevStack, lastOutput, null, throwable);
+
+        public <T1> ResultOrError<T1> of(T1 t1) {
+            return new ResultOrError<>(null, capture.frame(),
+                (cursor, frame) -> cursor.record(frame, null, t1, null, null),
+                capture
+            );
+        }
+
+        public <R> ResultOrError<R> on(ExceptionalSupplier<R> supplier) {
+            return new ResultOrError<>(null, capture.frame(),
+                (cursor, frame) -> {
+                    try {
+                        final var result = supplier.get();
+                        cursor.record(frame, null, result, null, null);
+                    } catch (Throwable throwable) {
+                        cursor.record(frame, null, null, throwable, null);
+                    }
+                },
+                capture
+            );
+        }
+
+        public ResultOrError<Void> doRun(ExceptionalRunnable runner) {
+            return new ResultOrError<>(null, capture.frame(),
+                (cursor, frame) -> {
+                    try {
+                        runner.run();
+                        cursor.record(frame, null, null, null, null);
+                    } catch (Throwable throwable) {
+                        cursor.record(frame, null, null, throwable, null);
+                    }
+                },
+                capture
+            );
         }
     }
 
-    public ResultOrError<R> fallbackForEmpty(Supplier<R> emptySupplier) {
-        final var frame = getStackStep();
-        return new ResultOrError<>(
-            () -> {
-                final var prevStack = supplier.get();
-                final var lastOutput = prevStack.output();
-                if (prevStack.isError()) {
-                    return prevStack;
-                }
+    /**
+     * maps each element on the calling thread, a failed element does not stop the others
+     */
+    public static <T, R> Partitioned<T, R> traverse(
+        Collection<? extends T> elements,
+        ExceptionalFunction<? super T, ? extends R> mapper
+    ) {
+        return traverse(elements, mapper, Parallelism.SEQUENTIAL);
+    }
+
+    /**
+     * maps each element as the parallelism runs them, the mapper must be safe for it<br/>
+     * a failed element keeps one step, of the frame calling this
+     */
+    public static <T, R> Partitioned<T, R> traverse(
+        Collection<? extends T> elements,
+        ExceptionalFunction<? super T, ? extends R> mapper,
+        Parallelism parallelism
+    ) {
+        final var frame = StackCapture.defaultCapture().forNewChain().frame();
+        final var slots = new Partitioned.Slots<T, R>(new ArrayList<>(elements));
+        parallelism.forEach(
+            elements.size(),
+            i -> {
+                final T element = slots.element(i);
                 try {
-                    if (null == lastOutput) {
-                        var currentRes = emptySupplier.get();
-                        return new StackStepInfo<>(frame, prevStack, null, currentRes, null);
-                    } else {
-                        return new StackStepInfo<>(frame, prevStack, lastOutput, lastOutput, null);
-                    }
+                    slots.success(i, mapper.apply(element));
                 } catch (Throwable throwable) {
-                    return new StackStepInfo<>(frame, prevStack, lastOutput, null, throwable);
+                    slots.failure(i, new StackStepInfo<>(frame, null, element, null, throwable));
                 }
-            }
+            },
+            (throwable, i) -> slots.failure(i, new StackStepInfo<>(frame, null, slots.element(i), null, throwable))
         );
+        return slots.toPartitioned();
     }
 
-    public ResultOrError<R> consume(ExceptionalConsumer<? super R> consumer) {
-        final var frame = getStackStep();
-        return new ResultOrError<>(
-            () -> {
-                final var prevStack = supplier.get();
-                return getStackByConsume(consumer, prevStack, frame);
-            }
+    public static <R> Partitioned<ResultOrError<R>, R> sequence(Collection<ResultOrError<R>> chains) {
+        return sequence(chains, Parallelism.SEQUENTIAL);
+    }
+
+    /**
+     * runs each chain as the parallelism runs them, a failed chain keeps all of its steps,
+     * a chain throwing out of its steps (e.g. a flatMap mapper) fails with one step, of the frame calling this
+     */
+    public static <R> Partitioned<ResultOrError<R>, R> sequence(
+        Collection<ResultOrError<R>> chains,
+        Parallelism parallelism
+    ) {
+        final var frame = StackCapture.defaultCapture().forNewChain().frame();
+        final var slots = new Partitioned.Slots<ResultOrError<R>, R>(new ArrayList<>(chains));
+        parallelism.forEach(
+            chains.size(),
+            i -> {
+                final var stepInfo = slots.element(i).stepInfo(frame);
+                if (stepInfo.isError()) {
+                    slots.failure(i, stepInfo);
+                } else {
+                    slots.success(i, stepInfo.output());
+                }
+            },
+            (throwable, i) -> slots.failure(i, new StackStepInfo<>(frame, null, slots.element(i), null, throwable))
         );
+        return slots.toPartitioned();
     }
 
-    public ResultOrError<R> doOnError(ExceptionalConsumer<? super Throwable> consumer) {
-        final var frame = getStackStep();
-        return new ResultOrError<>(
-            () -> {
-                final var prevStack = supplier.get();
-                final var lastOutput = prevStack.output();
+    /**
+     * {@link #traverse} for streams, parallel ones map in the fork join workers of the stream
+     */
+    public static <T, R> Collector<T, ?, Partitioned<T, R>> toPartitioned(
+        ExceptionalFunction<? super T, ? extends R> mapper
+    ) {
+        final var frame = StackCapture.defaultCapture().forNewChain().frame();
+        return Collector.<T, Partitioned.Accumulator<T, R>, Partitioned<T, R>>of(
+            Partitioned.Accumulator::new,
+            (accumulator, element) -> {
                 try {
-                    if (prevStack.isError()) {
-                        consumer.accept(prevStack.throwable());
-                        return new StackStepInfo<>(frame, prevStack, lastOutput, null, prevStack.throwable());
-                    }
-                    return prevStack;
+                    accumulator.success(mapper.apply(element));
                 } catch (Throwable throwable) {
-                    return new StackStepInfo<>(frame, prevStack, lastOutput, null, throwable);
+                    accumulator.failure(element, new StackStepInfo<>(frame, null, element, null, throwable));
                 }
-            }
+            },
+            Partitioned.Accumulator::merge,
+            Partitioned.Accumulator::toPartitioned
         );
+    }
 
+    /**
+     * {@link #sequence} for streams
+     */
+    public static <R> Collector<ResultOrError<R>, ?, Partitioned<ResultOrError<R>, R>> toPartitioned() {
+        final var frame = StackCapture.defaultCapture().forNewChain().frame();
+        return Collector.<ResultOrError<R>, Partitioned.Accumulator<ResultOrError<R>, R>, Partitioned<ResultOrError<R>, R>>of(
+            Partitioned.Accumulator::new,
+            (accumulator, chain) -> {
+                StackStepInfo<R> stepInfo;
+                try {
+                    stepInfo = chain.stepInfo(frame);
+                } catch (Throwable throwable) {
+                    stepInfo = new StackStepInfo<>(frame, null, chain, null, throwable);
+                }
+                if (stepInfo.isError()) {
+                    accumulator.failure(chain, stepInfo);
+                } else {
+                    accumulator.success(stepInfo.output());
+                }
+            },
+            Partitioned.Accumulator::merge,
+            Partitioned.Accumulator::toPartitioned
+        );
     }
 
-    static <R> StackStepInfo<R> getStackByConsume(ExceptionalConsumer<? super R> consumer, StackStepInfo<R> prevStack, StackWalker.StackFrame frame) {
+    public ResultOrError<R> filter(Predicate<? super R> predicate) {
+        return then((cursor, frame) -> {
+            if (cursor.isError()) {
+                return;
+            }
+            final R lastOutput = cursor.output();
+            try {
+                if (null == lastOutput || !predicate.test(lastOutput)) {
+                    cursor.record(frame, null, null, null, null);
+                }
+            } catch (Throwable throwable) {
+                cursor.record(frame, lastOutput, null, throwable, null);
+            }
+        });
+    }
 
-        final var lastOutput = prevStack.output();
-        if (prevStack.isError()) {
-            return prevStack;
-        } else if (null != lastOutput) {
+    public ResultOrError<R> fallbackForEmpty(Supplier<R> emptySupplier) {
+        return then((cursor, frame) -> {
+            if (cursor.isError()) {
+                return;
+            }
+            final R lastOutput = cursor.output();
             try {
-                consumer.accept(lastOutput);
-                return new StackStepInfo<>(frame, prevStack, lastOutput, lastOutput, null);
+                if (null == lastOutput) {
+                    var currentRes = emptySupplier.get();
+                    cursor.record(frame, null, currentRes, null, null);
+                } else {
+                    cursor.record(frame, lastOutput, lastOutput, null, null);
+                }
             } catch (Throwable throwable) {
-                return new StackStepInfo<>(frame, prevStack, lastOutput, null, throwable);
+                cursor.record(frame, lastOutput, null, throwable, null);
             }
-        } else {
-            return prevStack;
-        }
+        });
     }
 
-    public <U> ResultOrError<U> map(ExceptionalFunction<? super R, ? extends U> mapper) {
-        final var frame = getStackStep();
-        return new ResultOrError<>(
-            () -> {
-                final var previousStackInfo = supplier.get();
-                return getStackStepInfoByMapper(mapper, previousStackInfo, frame);
+    public ResultOrError<R> consume(ExceptionalConsumer<? super R> consumer) {
+        return then((cursor, frame) -> {
+            final R lastOutput = cursor.output();
+            if (cursor.isError() || null == lastOutput) {
+                return;
             }
-        );
+            try {
+                consumer.accept(lastOutput);
+                cursor.record(frame, lastOutput, lastOutput, null, null);
+            } catch (Throwable throwable) {
+                cursor.record(frame, lastOutput, null, throwable, null);
+            }
+        });
     }
 
-    public ResultOrError<R> mapOnError(ExceptionalFunction<Throwable, ? extends R> mapper) {
-        final var frame = getStackStep();
-        return new ResultOrError<>(
-            () -> {
-                final var prevStack = supplier.get();
-                try {
-                    if (prevStack.isError()) {
-                        val newOutputForError = mapper.apply(prevStack.throwable());
-                        return new StackStepInfo<>(frame, prevStack, prevStack.throwable(), newOutputForError, null);
-                    }
-                    return prevStack;
-                } catch (Throwable throwable) {
-                    final var lastOutput = prevStack.output();
-                    return new StackStepInfo<>(frame, prevStack, lastOutput, null, throwable);
+    public ResultOrError<R> doOnError(ExceptionalConsumer<? super Throwable> consumer) {
+        return then((cursor, frame) -> {
+            final Object lastOutput = cursor.output();
+            try {
+                if (cursor.isError()) {
+                    consumer.accept(cursor.throwable());
+                    cursor.record(frame, lastOutput, null, cursor.throwable(), null);
                 }
+            } catch (Throwable throwable) {
+                cursor.record(frame, lastOutput, null, throwable, null);
             }
-        );
+        });
     }
 
-    @SuppressWarnings("unchecked")
-    static <R, U> StackStepInfo<U> getStackStepInfoByMapper(
-        ExceptionalFunction<? super R, ? extends U> mapper,
-        StackStepInfo<R> previousStackInfo,
-        StackWalker.StackFrame frame
-    ) {
-        final var lastOutput = previousStackInfo.output();
-        if (previousStackInfo.isError()) {
-            return (StackStepInfo<U>) previousStackInfo;
-        } else if (null != lastOutput) {
+    public <U> ResultOrError<U> map(ExceptionalFunction<? super R, ? extends U> mapper) {
+        return then((cursor, frame) -> {
+            final R lastOutput = cursor.output();
+            if (cursor.isError() || null == lastOutput) {
+                return;
+            }
             try {
                 final var mappedVal = mapper.apply(lastOutput);
-                return new StackStepInfo<>(frame, previousStackInfo, lastOutput, mappedVal, null);
+                cursor.record(frame, lastOutput, mappedVal, null, null);
             } catch (Throwable t) {
-                return new StackStepInfo<>(frame, previousStackInfo, lastOutput, null, t);
+                cursor.record(frame, lastOutput, null, t, null);
             }
-        } else {
-            return (StackStepInfo<U>) previousStackInfo;
-        }
+        });
+    }
+
+    public ResultOrError<R> mapOnError(ExceptionalFunction<Throwable, ? extends R> mapper) {
+        return then((cursor, frame) -> {
+            try {
+                if (cursor.isError()) {
+                    val newOutputForError = mapper.apply(cursor.throwable());
+                    cursor.record(frame, cursor.throwable(), newOutputForError, null, null);
+                }
+            } catch (Throwable throwable) {
+                cursor.record(frame, cursor.output(), null, throwable, null);
+            }
+        });
     }
 
     public <U> ResultOrError<U> noExMap(Function<? super R, ? extends U> mapper) {
         return map(mapper::apply);
     }
 
-    @SuppressWarnings("unchecked")
     public <U> ResultOrError<U> flatMap(Function<? super R, ResultOrError<U>> mapper) {
-        final var frame = getStackStep();
-        return new ResultOrError<>(
-            () -> {
-                final var previousStackInfo = supplier.get();
-                final var lastOutput = previousStackInfo.output();
-                if (previousStackInfo.isError()) {
-                    return (StackStepInfo<U>) previousStackInfo;
-                } else if (null != lastOutput) {
-                    val mapperROE = mapper.apply(lastOutput);
-                    final var mappedResult = mapperROE.getResultInPackage(mapperROE.supplier);
-                    final var childStack = mappedResult.getStackStepInfo();
-                    if (mappedResult.isSuccess()) {
-                        final var mappedVal = mappedResult.get();
-                        return new StackStepInfo<>(frame, previousStackInfo, lastOutput, mappedVal, null, childStack.orElse(null));
-                    } else {
-                        return new StackStepInfo<>(frame, previousStackInfo, lastOutput, null, mappedResult.getError(), childStack.orElse(null));
-                    }
-                } else {
-                    return (StackStepInfo<U>) previousStackInfo;
-                }
+        return then((cursor, frame) -> {
+            final R lastOutput = cursor.output();
+            if (cursor.isError() || null == lastOutput) {
+                return;
             }
-        );
+            val mapperROE = mapper.apply(lastOutput);
+            final var mappedResult = mapperROE.getResultInPackage(mapperROE.supplier());
+            final var childStack = mappedResult.getStackStepInfo().orElse(null);
+            if (mappedResult.isSuccess()) {
+                cursor.record(frame, lastOutput, mappedResult.get(), null, childStack);
+            } else {
+                cursor.record(frame, lastOutput, null, mappedResult.getError(), childStack);
+            }
+        });
     }
 
-    @SuppressWarnings("unchecked")
     public ResultOrError<Optional<R>> continueWithOptional() {
-        final var frame = getStackStep();
-        return new ResultOrError<>(
-            () -> {
-                final var previousStackInfo = supplier.get();
-                final var lastOutput = previousStackInfo.output();
-                if (previousStackInfo.isError()) {
-                    return (StackStepInfo<Optional<R>>) previousStackInfo;
-                } else {
-                    return new StackStepInfo<>(frame, previousStackInfo, lastOutput, Optional.ofNullable(lastOutput), null, null);
-                }
+        return then((cursor, frame) -> {
+            if (cursor.isError()) {
+                return;
             }
-        );
+            final R lastOutput = cursor.output();
+            cursor.record(frame, lastOutput, Optional.ofNullable(lastOutput), null, null);
+        });
     }
 
     public R get() {
@@ -294,11 +536,49 @@ public class ResultOrError<R> {
         return Result.success(res.output(), res);
     }
 
+    /**
+     * the chain so far runs at most once, thread safe, the first read runs it<br/>
+     * reads of the returned chain share one result, steps added to it start from the stored state,
+     * so side effects of the chain so far (e.g. a rollback) are not repeated by reads or branches
+     */
+    public ResultOrError<R> memoize() {
+        val once = new Once<>(this::run);
+        return new ResultOrError<>(null, null, (cursor, ignored) -> cursor.adopt(once.get()), capture, true);
+    }
+
     public Result<R, Throwable> getResult() {
+        return getResult(null);
+    }
+
+    /**
+     * the terminal step is recorded with the given frame, or with the frame of the caller if null
+     */
+    Result<R, Throwable> getResult(StackWalker.StackFrame terminalFrame) {
+        if (!memoizing) {
+            return evaluate(terminalFrame);
+        }
+        var result = memo;
+        if (null == result) {
+            synchronized (this) {
+                result = memo;
+                if (null == result) {
+                    result = evaluate(terminalFrame);
+                    memo = result;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Result<R, Throwable> evaluate(StackWalker.StackFrame terminalFrame) {
 
         val rapped = (Supplier<? extends StackStepInfo<R>>) () -> {
-            final var res = supplier.get();
-            return new StackStepInfo<>(getStackStep(), res, res.input(), res.output(), res.throwable());
+            final var cursor = runSteps();
+            if (cursor.trace) {
+                val frame = null == terminalFrame ? capture.frame() : terminalFrame;
+                cursor.record(frame, cursor.input, cursor.output, cursor.throwable, null);
+            }
+            return cursor.toStepInfo();
         };
 
         return getResultInPackage(rapped);
@@ -309,4 +589,30 @@ public class ResultOrError<R> {
         return getResult().mapError(target, exceptionMapper);
     }
 
+    private static final class Once<T> implements Supplier<T> {
+        private Supplier<T> supplier;
+        private volatile T value;
+
+        Once(Supplier<T> supplier) {
+            this.supplier = supplier;
+        }
+
+        @Override
+        public T get() {
+            var current = value;
+            if (null == current) {
+                synchronized (this) {
+                    current = value;
+                    if (null == current) {
+                        current = supplier.get();
+                        value = current;
+                        // the chain before memoize can be collected
+                        supplier = null;
+                    }
+                }
+            }
+            return current;
+        }
+    }
+
 }
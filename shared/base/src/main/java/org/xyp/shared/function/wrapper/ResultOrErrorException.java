@@ -0,0 +1,21 @@
+package org.xyp.shared.function.wrapper;
+
+import org.xyp.shared.function.FunctionException;
+
+/**
+ * error of a chain leaving the wrapper, e.g. through {@link Reactive}, the cause is the error of the failed step<br/>
+ * the steps are kept, {@link StackLogUtil#logTrace} prints them
+ */
+public class ResultOrErrorException extends FunctionException {
+
+    private final transient StackStepInfo<?> stackStepInfo;
+
+    public ResultOrErrorException(Throwable cause, StackStepInfo<?> stackStepInfo) {
+        super(cause.getMessage(), cause);
+        this.stackStepInfo = stackStepInfo;
+    }
+
+    public StackStepInfo<?> getStackStepInfo() {
+        return stackStepInfo;
+    }
+}
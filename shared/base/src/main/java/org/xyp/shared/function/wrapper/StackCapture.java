@@ -0,0 +1,174 @@
+package org.xyp.shared.function.wrapper;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.lang.invoke.MethodType;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * when {@link ResultOrError} and {@link WithCloseable} steps capture the stack frame of the caller<br/>
+ * ALWAYS walks the stack when each step is built, the trace shows where every step was written<br/>
+ * ON_ERROR walks nothing when building, a failed step captures the frame when it fails,
+ * that is the frame running the chain instead of the one building it<br/>
+ * SAMPLED behaves as ALWAYS for one chain in {@link #SAMPLE_RATE_PROPERTY}, as ON_ERROR for the others<br/>
+ * OFF never captures, traces show no frames<br/>
+ * NO_TRACE keeps no step at all, a {@link ResultOrError} result carries only its final state,
+ * {@link WithCloseable} steps behave as OFF<br/>
+ * the default is read from system property {@link #PROPERTY}, a chain may choose its own by
+ * {@link ResultOrError#withStackCapture(StackCapture)} or {@link WithCloseable#withStackCapture(StackCapture)}
+ */
+@Slf4j
+public enum StackCapture {
+    ALWAYS,
+    ON_ERROR,
+    SAMPLED,
+    OFF,
+    NO_TRACE;
+
+    public static final String PROPERTY = "xyp.function.stack-capture";
+    public static final String SAMPLE_RATE_PROPERTY = "xyp.function.stack-capture.sample-rate";
+
+    private static volatile StackCapture defaultCapture = parse(System.getProperty(PROPERTY));
+    private static volatile int sampleRate = Integer.getInteger(SAMPLE_RATE_PROPERTY, 100);
+
+    private static final Set<Class<?>> WRAPPER_CLASSES = Set.of(
+        ResultOrError.class,
+        AsyncResultOrError.class,
+        Reactive.class,
+        Parallelism.class,
+        WithCloseable.class,
+        StackStepInfo.class,
+        StackStepInfoWithCloseable.class,
+        StackCapture.class
+    );
+
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+
+    /**
+     * placeholder frame of ON_ERROR steps, replaced by the captured frame when the step fails
+     */
+    static final StackWalker.StackFrame DEFERRED = new DeferredFrame();
+
+    /**
+     * a missing or unknown value falls back to ALWAYS, a typo in the property must not break every chain
+     */
+    static StackCapture parse(String value) {
+        if (null == value || value.isBlank()) {
+            return ALWAYS;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            log.warn("unknown {} value [{}], use {}", PROPERTY, value, ALWAYS);
+            return ALWAYS;
+        }
+    }
+
+    public static StackCapture defaultCapture() {
+        return defaultCapture;
+    }
+
+    public static void setDefaultCapture(StackCapture capture) {
+        defaultCapture = capture;
+    }
+
+    /**
+     * one in sample rate of SAMPLED chains captures frames of all steps
+     */
+    public static void setSampleRate(int rate) {
+        sampleRate = Math.max(1, rate);
+    }
+
+    /**
+     * what a new chain does, SAMPLED is decided here once for the whole chain
+     */
+    StackCapture forNewChain() {
+        if (this != SAMPLED) {
+            return this;
+        }
+        return ThreadLocalRandom.current().nextInt(sampleRate) == 0 ? ALWAYS : ON_ERROR;
+    }
+
+    /**
+     * frame for a step being built
+     */
+    StackWalker.StackFrame frame() {
+        return switch (this) {
+            case ALWAYS -> callerFrame();
+            case ON_ERROR, SAMPLED -> DEFERRED;
+            case OFF, NO_TRACE -> null;
+        };
+    }
+
+    /**
+     * the first frame outside the wrapper classes
+     */
+    static StackWalker.StackFrame callerFrame() {
+        return WALKER.walk(stream -> stream
+                .filter(s -> !WRAPPER_CLASSES.contains(s.getDeclaringClass().getNestHost()))
+                .findFirst())
+            .orElse(null);
+    }
+
+    static StackWalker.StackFrame resolve(StackWalker.StackFrame frame, Throwable throwable) {
+        if (frame != DEFERRED) {
+            return frame;
+        }
+        return null == throwable ? null : callerFrame();
+    }
+
+    private static final class DeferredFrame implements StackWalker.StackFrame {
+
+        @Override
+        public String getClassName() {
+            return StackCapture.class.getName();
+        }
+
+        @Override
+        public String getMethodName() {
+            return "deferred";
+        }
+
+        @Override
+        public Class<?> getDeclaringClass() {
+            return StackCapture.class;
+        }
+
+        @Override
+        public MethodType getMethodType() {
+            return MethodType.methodType(void.class);
+        }
+
+        @Override
+        public int getByteCodeIndex() {
+            return -1;
+        }
+
+        @Override
+        public String getFileName() {
+            return null;
+        }
+
+        @Override
+        public int getLineNumber() {
+            return -1;
+        }
+
+        @Override
+        public boolean isNativeMethod() {
+            return false;
+        }
+
+        @Override
+        public StackTraceElement toStackTraceElement() {
+            return new StackTraceElement(getClassName(), getMethodName(), null, -1);
+        }
+
+        @Override
+        public String toString() {
+            return "(frame not captured)";
+        }
+    }
+}
@@ -1,17 +1,61 @@
 package org.xyp.shared.function.wrapper;
 
-import lombok.val;
-
-import java.util.Objects;
+import java.lang.reflect.Array;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiFunction;
 import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.function.Supplier;
 
+/**
+ * renders the steps of a chain, nothing is formatted before shouldLog / the sink says it is wanted<br/>
+ * the text goes into one builder, steps are appended while the text is below {@link #MAX_CHARS_PROPERTY}
+ * and {@link #MAX_STEPS_PROPERTY}, children below {@link #MAX_DEPTH_PROPERTY},
+ * a value is cut at {@link #MAX_SIZE} chars, strings and collections without a full toString<br/>
+ * {@link #emitTrace} sends one structured {@link TraceEvent} per step to a {@link TraceSink} instead
+ */
 public class StackLogUtil {
 
     public static final String TRACE_LOG_INDENT = "|--- ";
+    public static final String MAX_CHARS_PROPERTY = "xyp.function.trace.max-chars";
+    public static final String MAX_STEPS_PROPERTY = "xyp.function.trace.max-steps";
+    public static final String MAX_DEPTH_PROPERTY = "xyp.function.trace.max-depth";
     private static final int MAX_SIZE = 150;
+    private static final String NO_FRAME = "(frame not captured)";
+    private static final String TRUNCATED = "... trace truncated";
+    private static final String NEW_LINE = System.lineSeparator();
+
+    private static volatile int maxChars = Integer.getInteger(MAX_CHARS_PROPERTY, 16 * 1024);
+    private static volatile int maxSteps = Integer.getInteger(MAX_STEPS_PROPERTY, 200);
+    private static volatile int maxDepth = Integer.getInteger(MAX_DEPTH_PROPERTY, 8);
+    private static volatile Function<Object, String> valueFormatter;
+
+    private static final AtomicLong TRACE_IDS = new AtomicLong();
+
+    public static void setMaxChars(int chars) {
+        maxChars = Math.max(MAX_SIZE, chars);
+    }
+
+    public static void setMaxSteps(int steps) {
+        maxSteps = Math.max(1, steps);
+    }
+
+    public static void setMaxDepth(int depth) {
+        maxDepth = Math.max(0, depth);
+    }
+
+    /**
+     * renders the values that are not strings, numbers or containers, e.g. to keep the toString of a large entity out of traces<br/>
+     * null restores their toString
+     */
+    public static void setValueFormatter(Function<Object, String> formatter) {
+        valueFormatter = formatter;
+    }
 
     public static void logTrace(
         Consumer<String> logger,
@@ -25,87 +69,228 @@ public class StackLogUtil {
         StackStepInfo<?> stackInfo,
         Supplier<Boolean> shouldLog
     ) {
-        logTrace(logger, stackInfo, shouldLog, StackLogUtil::getLogForSingleStack);
+        logTrace(logger, stackInfo, shouldLog, null);
     }
 
+    /**
+     * a log generator renders one step by itself, the limits still apply
+     */
     public static void logTrace(
         Consumer<String> logger,
         StackStepInfo<?> stackInfo,
         Supplier<Boolean> shouldLog,
         BiFunction<String, StackStepInfo<?>, String> logGenerator
     ) {
-        if (!shouldLog.get() || stackInfo == null) {
+        if (stackInfo == null || !shouldLog.get()) {
             return;
         }
-        StringBuilder sb = new StringBuilder();
+        final var renderer = new TextRenderer(logGenerator, maxChars, maxSteps, maxDepth);
+        final var sb = renderer.sb;
         if (stackInfo.isError()) {
-            sb.append(stackInfo.throwable().getMessage()).append(System.lineSeparator());
+            sb.append(stackInfo.throwable().getMessage());
         } else {
-            sb.append("stackInfo.output() ::").append(System.lineSeparator());
+            sb.append("stackInfo.output() ::");
         }
-        logTrace(sb, stackInfo, TRACE_LOG_INDENT, logGenerator);
+        sb.append(NEW_LINE);
+        renderer.render(stackInfo, TRACE_LOG_INDENT, 0);
         logger.accept(sb.toString());
     }
 
-    private static void logTrace(
-        StringBuilder sb,
-        StackStepInfo<?> stackInfo,
-        String prefix,
-        BiFunction<String, StackStepInfo<?>, String> logGenerator
-    ) {
-        var currentStackInfo = stackInfo;
-        while (null != currentStackInfo) {
-            extractLogString(sb, prefix, currentStackInfo, logGenerator);
+    /**
+     * one event per step, in the order of the text trace, to the sink if it is enabled<br/>
+     * one trace in sampleRate is emitted, 1 for all of them
+     *
+     * @return whether the trace was emitted
+     */
+    public static boolean emitTrace(StackStepInfo<?> stackInfo, TraceSink sink, int sampleRate) {
+        if (stackInfo == null || !sink.isEnabled()) {
+            return false;
+        }
+        if (sampleRate > 1 && ThreadLocalRandom.current().nextInt(sampleRate) != 0) {
+            return false;
+        }
+        new EventEmitter(sink, TRACE_IDS.incrementAndGet(), maxSteps, maxDepth).emit(stackInfo, 0);
+        return true;
+    }
 
-            currentStackInfo.getChild().ifPresent(child -> {
-                logTrace(sb, child, prefix + TRACE_LOG_INDENT, logGenerator);
-            });
+    private static final class TextRenderer {
+        private final StringBuilder sb = new StringBuilder(256);
+        private final BiFunction<String, StackStepInfo<?>, String> logGenerator;
+        private final int charLimit;
+        private final int depthLimit;
+        private int stepsLeft;
+        private boolean truncated;
 
-            currentStackInfo = currentStackInfo.previous();
+        TextRenderer(BiFunction<String, StackStepInfo<?>, String> logGenerator, int charLimit, int stepLimit, int depthLimit) {
+            this.logGenerator = logGenerator;
+            this.charLimit = charLimit;
+            this.depthLimit = depthLimit;
+            this.stepsLeft = stepLimit;
+        }
+
+        void render(StackStepInfo<?> stackInfo, String prefix, int depth) {
+            var current = stackInfo;
+            while (null != current && !truncated) {
+                if (stepsLeft-- <= 0 || sb.length() >= charLimit) {
+                    truncated = true;
+                    sb.append(prefix).append(TRUNCATED).append(NEW_LINE);
+                    return;
+                }
+                if (null == logGenerator) {
+                    appendStep(sb, prefix, current);
+                } else {
+                    sb.append(logGenerator.apply(prefix, current));
+                }
+                sb.append(NEW_LINE);
+                final var child = current.child();
+                if (null != child) {
+                    if (depth < depthLimit) {
+                        render(child, prefix + TRACE_LOG_INDENT, depth + 1);
+                    } else {
+                        sb.append(prefix).append(TRACE_LOG_INDENT).append("... child steps omitted").append(NEW_LINE);
+                    }
+                }
+                current = current.previous();
+            }
         }
     }
 
-    private static void extractLogString(
-        StringBuilder sb,
-        String prefix,
-        StackStepInfo<?> currentStackInfo,
-        BiFunction<String, StackStepInfo<?>, String> logGenerator
-    ) {
-        val log2 = logGenerator.apply(prefix, currentStackInfo);
-        sb.append(log2).append(System.lineSeparator());
+    private static final class EventEmitter {
+        private final TraceSink sink;
+        private final long traceId;
+        private final int depthLimit;
+        private int stepsLeft;
+        private int step;
+
+        EventEmitter(TraceSink sink, long traceId, int stepLimit, int depthLimit) {
+            this.sink = sink;
+            this.traceId = traceId;
+            this.depthLimit = depthLimit;
+            this.stepsLeft = stepLimit;
+        }
+
+        void emit(StackStepInfo<?> stackInfo, int depth) {
+            var current = stackInfo;
+            while (null != current && stepsLeft-- > 0) {
+                final var throwable = current.throwable();
+                sink.accept(new TraceEvent(
+                    traceId,
+                    step++,
+                    depth,
+                    appendFrame(new StringBuilder(64), current.stackFrame()).toString(),
+                    formatValue(current.input()),
+                    formatValue(current.output()),
+                    null == throwable ? null : formatValue(throwable)
+                ));
+                if (null != current.child() && depth < depthLimit) {
+                    emit(current.child(), depth + 1);
+                }
+                current = current.previous();
+            }
+        }
+    }
+
+    private static void appendStep(StringBuilder sb, String prefix, StackStepInfo<?> currentStackInfo) {
+        appendFrame(sb.append(prefix), currentStackInfo.stackFrame()).append(NEW_LINE);
+        appendValue(sb.append(prefix).append("    ->: "), currentStackInfo.input(), MAX_SIZE);
+        sb.append(NEW_LINE);
+        appendValue(sb.append(prefix).append("    <-: "), currentStackInfo.output(), MAX_SIZE);
+        if (currentStackInfo.isError()) {
+            sb.append(NEW_LINE).append(prefix).append("    [x] ");
+            appendValue(sb, currentStackInfo.throwable(), MAX_SIZE);
+        }
+    }
+
+    private static StringBuilder appendFrame(StringBuilder sb, StackWalker.StackFrame frame) {
+        if (null == frame || frame == StackCapture.DEFERRED) {
+            return sb.append(NO_FRAME);
+        }
+        sb.append(frame.getClassName()).append('.').append(frame.getMethodName()).append('(');
+        if (null == frame.getFileName()) {
+            sb.append("Unknown Source");
+        } else {
+            sb.append(frame.getFileName());
+            if (frame.getLineNumber() >= 0) {
+                sb.append(':').append(frame.getLineNumber());
+            }
+        }
+        return sb.append(')');
     }
 
-    private static String getLogForSingleStack(String prefix, StackStepInfo<?> currentStackInfo) {
-        final var frame = currentStackInfo.stackFrame().toString();
+    /**
+     * bounded text of the value, as of {@link #logTrace}
+     */
+    public static String formatValue(Object value) {
+        final var sb = new StringBuilder(32);
+        appendValue(sb, value, MAX_SIZE);
+        return sb.toString();
+    }
 
-        final var input = Optional.of(Objects.toString(currentStackInfo.input()))
-            .map(s -> {
-                if (s.length() > MAX_SIZE) {
-                    return s.substring(0, MAX_SIZE) + " ...";
+    /**
+     * strings and containers are appended piece by piece up to the limit,
+     * other values by their toString, or by the {@link #setValueFormatter value formatter} if one is set
+     */
+    static void appendValue(StringBuilder sb, Object value, int limit) {
+        final int end = sb.length() + limit;
+        switch (value) {
+            case null -> sb.append("null");
+            case CharSequence cs -> appendBounded(sb, cs, limit);
+            case Number n -> sb.append(n);
+            case Boolean b -> sb.append(b);
+            case Character c -> sb.append(c.charValue());
+            case Enum<?> e -> sb.append(e.name());
+            case Optional<?> o -> {
+                sb.append("Optional");
+                if (o.isPresent()) {
+                    sb.append('[');
+                    appendValue(sb, o.get(), end - sb.length());
+                    sb.append(']');
+                } else {
+                    sb.append(".empty");
                 }
-                return s;
-            }).orElse(null);
-        final var output = Optional.of(Objects.toString(currentStackInfo.output()))
-            .map(s -> {
-                if (s.length() > MAX_SIZE) {
-                    return s.substring(0, MAX_SIZE) + " ...";
+            }
+            case Collection<?> c -> appendElements(sb, c, end);
+            case Map<?, ?> m -> appendElements(sb, m.entrySet(), end);
+            case Map.Entry<?, ?> e -> {
+                appendValue(sb, e.getKey(), end - sb.length());
+                sb.append('=');
+                appendValue(sb, e.getValue(), end - sb.length());
+            }
+            case Object[] array -> appendElements(sb, Arrays.asList(array), end);
+            default -> {
+                if (value.getClass().isArray()) {
+                    sb.append(value.getClass().getComponentType().getName())
+                        .append('[').append(Array.getLength(value)).append(']');
+                } else {
+                    final var formatter = valueFormatter;
+                    appendBounded(sb, null == formatter ? String.valueOf(value) : String.valueOf(formatter.apply(value)), limit);
                 }
-                return s;
-            }).orElse(null);
+            }
+        }
+    }
 
-        if (currentStackInfo.isError()) {
-            return String.format("%s%s\n%s    ->: %s\n%s    <-: %s\n%s    [x] %s",
-                prefix, frame,
-                prefix, input,
-                prefix, output,
-                prefix, Optional.ofNullable(currentStackInfo.throwable()).map(Object::toString).orElse("")
-            );
+    private static void appendElements(StringBuilder sb, Collection<?> elements, int end) {
+        sb.append('[');
+        boolean first = true;
+        for (final var element : elements) {
+            if (sb.length() >= end) {
+                sb.append(" ...");
+                break;
+            }
+            if (!first) {
+                sb.append(", ");
+            }
+            first = false;
+            appendValue(sb, element, Math.max(1, end - sb.length()));
+        }
+        sb.append(']');
+    }
+
+    private static void appendBounded(StringBuilder sb, CharSequence cs, int limit) {
+        if (cs.length() > limit) {
+            sb.append(cs, 0, Math.max(0, limit)).append(" ...");
         } else {
-            return String.format("%s%s\n%s    ->: %s\n%s    <-: %s",
-                prefix, frame,
-                prefix, input,
-                prefix, output
-            );
+            sb.append(cs);
         }
     }
 }
@@ -1,10 +1,7 @@
 package org.xyp.shared.function.wrapper;
 
-import lombok.AllArgsConstructor;
-
 import java.util.Optional;
 
-@AllArgsConstructor
 public class StackStepInfo<T> {
     private final StackWalker.StackFrame stackFrame;
     private final StackStepInfo<?> previous;
@@ -13,6 +10,25 @@ public class StackStepInfo<T> {
     private final Throwable throwable;
     private final StackStepInfo<T> child;
 
+    /**
+     * a frame deferred by {@link StackCapture#ON_ERROR} is captured here if the step failed
+     */
+    public StackStepInfo(
+        StackWalker.StackFrame stackFrame,
+        StackStepInfo<?> previous,
+        Object input,
+        T output,
+        Throwable throwable,
+        StackStepInfo<T> child
+    ) {
+        this.stackFrame = StackCapture.resolve(stackFrame, throwable);
+        this.previous = previous;
+        this.input = input;
+        this.output = output;
+        this.throwable = throwable;
+        this.child = child;
+    }
+
     public boolean isError() {
         return null != throwable;
     }
@@ -0,0 +1,19 @@
+package org.xyp.shared.function.wrapper;
+
+/**
+ * one step of a trace emitted by {@link StackLogUtil#emitTrace}, values are already formatted and cut,
+ * so an event keeps no reference to the objects of the chain<br/>
+ * step counts from the last step of the chain, depth is 0 for the chain itself and grows by 1 for each child level
+ *
+ * @param error null if the step did not fail
+ */
+public record TraceEvent(
+    long traceId,
+    int step,
+    int depth,
+    String frame,
+    String input,
+    String output,
+    String error
+) {
+}
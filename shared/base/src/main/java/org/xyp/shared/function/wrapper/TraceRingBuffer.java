@@ -0,0 +1,48 @@
+package org.xyp.shared.function.wrapper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * keeps the last capacity {@link TraceEvent}s in memory, e.g. to be dumped when something goes wrong<br/>
+ * writers never block, a snapshot taken while writing may miss the events being written
+ */
+public class TraceRingBuffer implements TraceSink {
+
+    private final AtomicReferenceArray<TraceEvent> events;
+    private final AtomicLong written = new AtomicLong();
+
+    public TraceRingBuffer(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive, got " + capacity);
+        }
+        this.events = new AtomicReferenceArray<>(capacity);
+    }
+
+    @Override
+    public void accept(TraceEvent event) {
+        events.set((int) (written.getAndIncrement() % events.length()), event);
+    }
+
+    /**
+     * oldest first
+     */
+    public List<TraceEvent> snapshot() {
+        final long end = written.get();
+        final long start = Math.max(0, end - events.length());
+        final var snapshot = new ArrayList<TraceEvent>((int) (end - start));
+        for (long i = start; i < end; i++) {
+            final var event = events.get((int) (i % events.length()));
+            if (null != event) {
+                snapshot.add(event);
+            }
+        }
+        return snapshot;
+    }
+
+    public long written() {
+        return written.get();
+    }
+}
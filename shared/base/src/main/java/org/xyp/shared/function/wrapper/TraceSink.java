@@ -0,0 +1,42 @@
+package org.xyp.shared.function.wrapper;
+
+import org.slf4j.Logger;
+import org.slf4j.event.Level;
+
+/**
+ * receives the {@link TraceEvent}s of {@link StackLogUtil#emitTrace}, nothing is formatted for a disabled sink
+ */
+@FunctionalInterface
+public interface TraceSink {
+
+    void accept(TraceEvent event);
+
+    default boolean isEnabled() {
+        return true;
+    }
+
+    /**
+     * one log event per step with the fields as key values, for structured (e.g. json) appenders
+     */
+    static TraceSink keyValues(Logger logger, Level level) {
+        return new TraceSink() {
+            @Override
+            public void accept(TraceEvent event) {
+                logger.atLevel(level)
+                    .addKeyValue("trace.id", event.traceId())
+                    .addKeyValue("trace.step", event.step())
+                    .addKeyValue("trace.depth", event.depth())
+                    .addKeyValue("trace.frame", event.frame())
+                    .addKeyValue("trace.input", event.input())
+                    .addKeyValue("trace.output", event.output())
+                    .addKeyValue("trace.error", event.error())
+                    .log("trace step");
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return logger.isEnabledForLevel(level);
+            }
+        };
+    }
+}
@@ -11,16 +11,6 @@ import java.util.stream.Stream;
 @Slf4j
 public class WithCloseable<C extends AutoCloseable, T> {
 
-    static StackWalker.StackFrame getStackStep() {
-        return StackWalker.getInstance()
-            .walk(stream -> stream.filter(s ->
-                    !s.toStackTraceElement().getClassName().equals(WithCloseable.class.getName())
-                        && !s.toStackTraceElement().getClassName().equals(ResultOrError.class.getName())
-                )
-                .findFirst())
-            .orElse(null);
-    }
-
     private static <L extends AutoCloseable> StackStepInfoWithCloseable<L, L>
     openStackStepInfoWithCloseable(ExceptionalSupplier<L> open, StackWalker.StackFrame frame) {
         try {
@@ -98,50 +88,80 @@ public class WithCloseable<C extends AutoCloseable, T> {
     }
 
     public static <L extends AutoCloseable> WithCloseable<L, L> open(ExceptionalSupplier<L> open) {
-        final var frame = getStackStep();
-        return new WithCloseable<>(
-            () -> openStackStepInfoWithCloseable(open, frame),
-            // (closeable, throwable) onException
-            (__, ___) -> {
-            }
-        );
+        return withStackCapture(StackCapture.defaultCapture()).open(open);
     }
 
     public static <L extends AutoCloseable> WithCloseable<L, L> open(
         ExceptionalSupplier<L> open,
         BiConsumer<L, Throwable> exceptionConsumer
     ) {
-        final var frame = getStackStep();
-        return new WithCloseable<>(
-            () -> openStackStepInfoWithCloseable(open, frame),
-            exceptionConsumer
-        );
+        return withStackCapture(StackCapture.defaultCapture()).open(open, exceptionConsumer);
+    }
+
+    /**
+     * opens a closeable with its own {@link StackCapture}, all steps of the chain follow it
+     */
+    public static Builder withStackCapture(StackCapture capture) {
+        return new Builder(capture.forNewChain());
+    }
+
+    public static final class Builder {
+        private final StackCapture capture;
+
+        private Builder(StackCapture capture) {
+            this.capture = capture;
+        }
+
+        public <L extends AutoCloseable> WithCloseable<L, L> open(ExceptionalSupplier<L> open) {
+            return open(
+                open,
+                // (closeable, throwable) onException
+                (__, ___) -> {
+                }
+            );
+        }
+
+        public <L extends AutoCloseable> WithCloseable<L, L> open(
+            ExceptionalSupplier<L> open,
+            BiConsumer<L, Throwable> exceptionConsumer
+        ) {
+            final var frame = capture.frame();
+            return new WithCloseable<>(
+                () -> openStackStepInfoWithCloseable(open, frame),
+                exceptionConsumer,
+                capture
+            );
+        }
     }
 
     final Supplier<StackStepInfoWithCloseable<C, T>> closeableSupplier;
     final BiConsumer<C, Throwable> exceptionConsumer;
+    final StackCapture capture;
 
     private WithCloseable(
         Supplier<StackStepInfoWithCloseable<C, T>> closeableSupplier,
-        BiConsumer<C, Throwable> exceptionConsumer
+        BiConsumer<C, Throwable> exceptionConsumer,
+        StackCapture capture
     ) {
         this.closeableSupplier = closeableSupplier;
         this.exceptionConsumer = exceptionConsumer;
+        this.capture = capture;
     }
 
     public <U> WithCloseable<C, U> map(ExceptionalFunction<? super T, ? extends U> function) {
-        final var frame = getStackStep();
+        final var frame = capture.frame();
         return new WithCloseable<>(
             () -> {
                 final var previousStackInfo = closeableSupplier.get();
                 return getStackStepInfoByMapper(function, previousStackInfo, frame);
             },
-            exceptionConsumer
+            exceptionConsumer,
+            capture
         );
     }
 
     public WithCloseable<C, T> fallBackEmpty(Function<C, T> emptySupplier) {
-        final var frame = getStackStep();
+        final var frame = capture.frame();
         return new WithCloseable<>(
             () -> {
                 final var previousStackInfo = closeableSupplier.get();
@@ -160,23 +180,25 @@ public class WithCloseable<C extends AutoCloseable, T> {
                     return previousStackInfo;
                 }
             },
-            exceptionConsumer
+            exceptionConsumer,
+            capture
         );
     }
 
     public WithCloseable<C, T> consume(ExceptionalConsumer<? super T> consumer) {
-        final var frame = getStackStep();
+        final var frame = capture.frame();
         return new WithCloseable<>(
             () -> {
                 final var previousStackInfo = closeableSupplier.get();
                 return getStackByConsume(consumer, previousStackInfo, frame);
             },
-            this.exceptionConsumer
+            this.exceptionConsumer,
+            capture
         );
     }
 
     public WithCloseable<C, T> doOnError(ExceptionalBiConsumer<C, Throwable> consumer) {
-        final var frame = getStackStep();
+        final var frame = capture.frame();
         return new WithCloseable<>(
             () -> {
                 final var previousStackInfo = closeableSupplier.get();
@@ -194,12 +216,13 @@ public class WithCloseable<C extends AutoCloseable, T> {
                     return new StackStepInfoWithCloseable<>(frame, previousStackInfo, closeable, lastOutput, null, t);
                 }
             },
-            this.exceptionConsumer
+            this.exceptionConsumer,
+            capture
         );
     }
 
     public WithCloseable<C, T> mapOnError(ExceptionalBiFunction<C, Throwable, T> consumer) {
-        final var frame = getStackStep();
+        final var frame = capture.frame();
         return new WithCloseable<>(
             () -> {
                 final var previousStackInfo = closeableSupplier.get();
@@ -217,14 +240,15 @@ public class WithCloseable<C extends AutoCloseable, T> {
                     return new StackStepInfoWithCloseable<>(frame, previousStackInfo, closeable, lastOutput, null, t);
                 }
             },
-            this.exceptionConsumer
+            this.exceptionConsumer,
+            capture
         );
     }
 
 
     @SuppressWarnings("unchecked")
     public <U> WithCloseable<C, U> mapWithCloseable(ExceptionalBiFunction<? super C, ? super T, ? extends U> biFunction) {
-        final var frame = getStackStep();
+        final var frame = capture.frame();
         return new WithCloseable<>(
             () -> {
                 final var previousStackInfo = closeableSupplier.get();
@@ -241,24 +265,26 @@ public class WithCloseable<C extends AutoCloseable, T> {
                     }
                 }
             },
-            this.exceptionConsumer
+            this.exceptionConsumer,
+            capture
         );
     }
 
     public WithCloseable<C, T> filter(Predicate<? super T> predicate) {
-        final var frame = getStackStep();
+        final var frame = capture.frame();
         return new WithCloseable<>(
             () -> {
                 final var prevStack = closeableSupplier.get();
                 return getStackStepInfoByFilter(predicate, prevStack, frame);
             },
-            this.exceptionConsumer
+            this.exceptionConsumer,
+            capture
         );
     }
 
     @SuppressWarnings("unchecked")
     public <U> WithCloseable<C, U> flatMap(Function<? super T, ResultOrError<U>> mapper) {
-        final var frame = getStackStep();
+        final var frame = capture.frame();
         return new WithCloseable<>(
             () -> {
                 final var previousStackInfo = closeableSupplier.get();
@@ -280,13 +306,14 @@ public class WithCloseable<C extends AutoCloseable, T> {
                     return (StackStepInfoWithCloseable<C, U>) previousStackInfo;
                 }
             },
-            this.exceptionConsumer
+            this.exceptionConsumer,
+            capture
         );
     }
 
     @SuppressWarnings("unchecked")
     public WithCloseable<C, Optional<T>> continueWithOptional() {
-        final var frame = getStackStep();
+        final var frame = capture.frame();
         return new WithCloseable<C, Optional<T>>(
             () -> {
                 final var previousStackInfo = closeableSupplier.get();
@@ -297,7 +324,8 @@ public class WithCloseable<C extends AutoCloseable, T> {
                     return new StackStepInfoWithCloseable<>(frame, previousStackInfo, previousStackInfo.closeable(), lastOutput, Optional.ofNullable(lastOutput), null, null);
                 }
             },
-            this.exceptionConsumer
+            this.exceptionConsumer,
+            capture
         );
     }
 
@@ -324,7 +352,7 @@ public class WithCloseable<C extends AutoCloseable, T> {
 
     public ResultOrError<T> convertToResult() {
 
-        final var frame = getStackStep();
+        final var frame = capture.frame();
         val rapped = (Supplier<? extends StackStepInfo<T>>) () -> {
             C localCloseable = null;
             StackStepInfoWithCloseable<C, T> localRes = null;
@@ -355,6 +383,6 @@ public class WithCloseable<C extends AutoCloseable, T> {
             return localRes;
         };
 
-        return new ResultOrError<>(rapped);
+        return new ResultOrError<>(rapped, capture);
     }
 }
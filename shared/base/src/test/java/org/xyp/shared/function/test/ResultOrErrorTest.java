@@ -9,11 +9,30 @@ import org.xyp.shared.exceptions.ValidateException;
 import org.xyp.shared.function.Fun;
 import org.xyp.shared.function.FunctionException;
 import org.xyp.shared.function.ValueHolder;
+import org.xyp.shared.function.wrapper.AsyncResultOrError;
+import org.xyp.shared.function.wrapper.Parallelism;
+import org.xyp.shared.function.wrapper.Partitioned;
+import org.xyp.shared.function.wrapper.Reactive;
 import org.xyp.shared.function.wrapper.ResultOrError;
+import org.xyp.shared.function.wrapper.ResultOrErrorException;
+import org.xyp.shared.function.wrapper.StackCapture;
+import org.xyp.shared.function.wrapper.StackLogUtil;
 import org.xyp.shared.function.wrapper.StackStepInfo;
+import org.xyp.shared.function.wrapper.TraceEvent;
+import org.xyp.shared.function.wrapper.TraceRingBuffer;
+import org.xyp.shared.function.wrapper.TraceSink;
 
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Stream;
 
 @Slf4j
@@ -861,6 +880,584 @@ class ResultOrErrorTest {
         Assertions.assertThat(opt.get()).isEqualTo(-1);
     }
 
+    @Test
+    void test44() {
+        val result = ResultOrError.withStackCapture(StackCapture.ALWAYS)
+            .on(() -> 1)
+            .map(i -> i + 1)
+            .getResult();
+
+        Assertions.assertThat(result.get()).isEqualTo(2);
+        Assertions.assertThat(frames(result.getStackStepInfo().orElseThrow()))
+            .hasSize(3)
+            .allMatch(f -> null != f && f.getClassName().equals(ResultOrErrorTest.class.getName()));
+    }
+
+    @Test
+    void test45() {
+        val success = ResultOrError.withStackCapture(StackCapture.ON_ERROR)
+            .on(() -> 1)
+            .map(i -> i + 1)
+            .getResult();
+        Assertions.assertThat(frames(success.getStackStepInfo().orElseThrow())).containsOnlyNulls();
+
+        val failure = ResultOrError.withStackCapture(StackCapture.ON_ERROR)
+            .on(() -> 1)
+            .map(i -> i / 0)
+            .map(i -> i + 1)
+            .getResult();
+        Assertions.assertThat(failure.isSuccess()).isFalse();
+        val failedStep = failure.getStackStepInfo().orElseThrow().previous();
+        Assertions.assertThat(failedStep.isError()).isTrue();
+        Assertions.assertThat(failedStep.stackFrame()).isNotNull();
+        Assertions.assertThat(failedStep.stackFrame().getClassName()).isEqualTo(ResultOrErrorTest.class.getName());
+        Assertions.assertThat(failedStep.previous().stackFrame()).isNull();
+
+        val trace = new StringBuilder();
+        failure.traceDebugOrError(() -> true, trace::append, () -> true, trace::append);
+        Assertions.assertThat(trace).contains("(frame not captured)", ResultOrErrorTest.class.getName());
+    }
+
+    @Test
+    void test46() {
+        val failure = ResultOrError.withStackCapture(StackCapture.OFF)
+            .on(() -> 1)
+            .map(i -> i / 0)
+            .getResult();
+        Assertions.assertThat(failure.isSuccess()).isFalse();
+        Assertions.assertThat(failure.getError()).isInstanceOf(ArithmeticException.class);
+        Assertions.assertThat(frames(failure.getStackStepInfo().orElseThrow())).containsOnlyNulls();
+    }
+
+    @Test
+    void test47() {
+        val defaultCapture = StackCapture.defaultCapture();
+        try {
+            StackCapture.setDefaultCapture(StackCapture.SAMPLED);
+            StackCapture.setSampleRate(1);
+            val sampled = ResultOrError.on(() -> 1).map(i -> i + 1).getResult();
+            Assertions.assertThat(frames(sampled.getStackStepInfo().orElseThrow())).doesNotContainNull();
+
+            StackCapture.setDefaultCapture(StackCapture.OFF);
+            val off = ResultOrError.on(() -> 1).map(i -> i + 1).getResult();
+            Assertions.assertThat(frames(off.getStackStepInfo().orElseThrow())).containsOnlyNulls();
+        } finally {
+            StackCapture.setDefaultCapture(defaultCapture);
+            StackCapture.setSampleRate(100);
+        }
+    }
+
+    @Test
+    void test48() {
+        var chain = ResultOrError.withStackCapture(StackCapture.OFF).on(() -> 0);
+        for (int i = 0; i < 100_000; i++) {
+            chain = chain.map(v -> v + 1);
+        }
+        val result = chain.getResult();
+        Assertions.assertThat(result.get()).isEqualTo(100_000);
+        Assertions.assertThat(frames(result.getStackStepInfo().orElseThrow())).hasSize(100_002);
+        // a chain runs again on each get, from the compiled steps
+        Assertions.assertThat(chain.get()).isEqualTo(100_000);
+    }
+
+    @Test
+    void test49() {
+        val success = ResultOrError.withStackCapture(StackCapture.NO_TRACE)
+            .on(() -> 1)
+            .filter(i -> i > 0)
+            .map(i -> i + 1)
+            .flatMap(i -> ResultOrError.on(() -> i * 10))
+            .getResult();
+        Assertions.assertThat(success.get()).isEqualTo(20);
+        val successStack = success.getStackStepInfo().orElseThrow();
+        Assertions.assertThat(successStack.previous()).isNull();
+        Assertions.assertThat(successStack.stackFrame()).isNull();
+        Assertions.assertThat(successStack.child()).isNotNull();
+
+        val errorHolder = new ValueHolder<Throwable>(null);
+        val failure = ResultOrError.withStackCapture(StackCapture.NO_TRACE)
+            .on(() -> 1)
+            .flatMap(i -> ResultOrError.<Integer>on(() -> {
+                throw new IllegalStateException("child failed");
+            }))
+            .map(i -> i + 1)
+            .doOnError(errorHolder::setValue)
+            .getResult();
+        Assertions.assertThat(failure.isSuccess()).isFalse();
+        Assertions.assertThat(failure.getError()).isInstanceOf(IllegalStateException.class).hasMessage("child failed");
+        Assertions.assertThat(errorHolder.value()).isSameAs(failure.getError());
+        Assertions.assertThat(failure.getStackStepInfo().orElseThrow().previous()).isNull();
+
+        val empty = ResultOrError.withStackCapture(StackCapture.NO_TRACE)
+            .on(() -> 1)
+            .filter(i -> i > 1)
+            .map(i -> i + 1)
+            .getResult();
+        Assertions.assertThat(empty.isSuccess()).isTrue();
+        Assertions.assertThat(empty.getOption()).isEmpty();
+    }
+
+    @Test
+    void test50() throws Exception {
+        val runs = new AtomicInteger();
+        val memoized = ResultOrError.on(runs::incrementAndGet)
+            .map(i -> i * 10)
+            .memoize();
+
+        Assertions.assertThat(runs).hasValue(0);
+        Assertions.assertThat(memoized.get()).isEqualTo(10);
+        Assertions.assertThat(memoized.getOption()).contains(10);
+        Assertions.assertThat(memoized.getResult()).isSameAs(memoized.getResult());
+        Assertions.assertThat(memoized.map(i -> i + 1).get()).isEqualTo(11);
+        Assertions.assertThat(memoized.map(i -> i + 2).get()).isEqualTo(12);
+        Assertions.assertThat(ResultOrError.of(1).flatMap(i -> memoized).get()).isEqualTo(10);
+        Assertions.assertThat(runs).hasValue(1);
+
+        val concurrentRuns = new AtomicInteger();
+        val concurrent = ResultOrError.on(concurrentRuns::incrementAndGet).memoize();
+        try (val executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            val futures = Stream.generate(() -> executor.submit(concurrent::get)).limit(32).toList();
+            for (val future : futures) {
+                Assertions.assertThat(future.get()).isOne();
+            }
+        }
+        Assertions.assertThat(concurrentRuns).hasValue(1);
+    }
+
+    @Test
+    void test51() {
+        val runs = new AtomicInteger();
+        val failing = ResultOrError.on(runs::incrementAndGet)
+            .map(i -> i / 0)
+            .memoize();
+        Assertions.assertThat(failing.getResult().isSuccess()).isFalse();
+        Assertions.assertThat(failing.mapOnError(e -> -1).get()).isEqualTo(-1);
+        Assertions.assertThat(runs).hasValue(1);
+
+        val memoizeByDefault = ResultOrError.isMemoizeByDefault();
+        try {
+            ResultOrError.setMemoizeByDefault(true);
+            val chain = ResultOrError.on(runs::incrementAndGet);
+            Assertions.assertThat(chain.get()).isEqualTo(2);
+            Assertions.assertThat(chain.get()).isEqualTo(2);
+            Assertions.assertThat(runs).hasValue(2);
+        } finally {
+            ResultOrError.setMemoizeByDefault(memoizeByDefault);
+        }
+        val notMemoized = ResultOrError.on(runs::incrementAndGet);
+        Assertions.assertThat(notMemoized.get()).isEqualTo(3);
+        Assertions.assertThat(notMemoized.get()).isEqualTo(4);
+    }
+
+    @Test
+    void test52() {
+        val caller = Thread.currentThread();
+        val threads = new ArrayList<Thread>();
+        val chain = AsyncResultOrError.supplyAsync(() -> {
+                threads.add(Thread.currentThread());
+                return 1;
+            })
+            .map(i -> i + 1)
+            .mapAsync(i -> {
+                threads.add(Thread.currentThread());
+                return i * 10;
+            })
+            .flatMapAsync(i -> AsyncResultOrError.supplyAsync(() -> i + 5))
+            .flatMap(i -> ResultOrError.on(() -> i + 1));
+        Assertions.assertThat(threads).isEmpty();
+
+        val result = chain.join();
+        Assertions.assertThat(result.get()).isEqualTo(26);
+        Assertions.assertThat(threads).hasSize(2).allMatch(Thread::isVirtual).doesNotContain(caller);
+        val stack = result.getStackStepInfo().orElseThrow();
+        // supply, map, mapAsync, flatMapAsync, flatMap and the terminal step, all written in this method
+        Assertions.assertThat(frames(stack)).hasSize(6)
+            .allMatch(f -> f.getMethodName().equals("test52"));
+        Assertions.assertThat(stack.previous().child()).isNotNull();
+        Assertions.assertThat(stack.previous().previous().child()).isNotNull();
+        // lazy, each join runs it again
+        Assertions.assertThat(chain.join().get()).isEqualTo(26);
+        Assertions.assertThat(threads).hasSize(4);
+    }
+
+    @Test
+    void test53() {
+        val errorHolder = new ValueHolder<Throwable>(null);
+        val failure = AsyncResultOrError.supplyAsync(() -> 1)
+            .mapAsync(i -> i / 0)
+            .map(i -> i + 1)
+            .doOnError(errorHolder::setValue)
+            .toFuture()
+            .join();
+        Assertions.assertThat(failure.isSuccess()).isFalse();
+        Assertions.assertThat(failure.getError()).isInstanceOf(ArithmeticException.class);
+        Assertions.assertThat(errorHolder.value()).isSameAs(failure.getError());
+        Assertions.assertThat(AsyncResultOrError.supplyAsync(() -> 1)
+            .mapAsync(i -> i / 0)
+            .mapOnError(e -> -1)
+            .join()
+            .get()).isEqualTo(-1);
+
+        val childFailure = AsyncResultOrError.supplyAsync(() -> 1)
+            .flatMapAsync(i -> AsyncResultOrError.<Integer>supplyAsync(() -> {
+                throw new IllegalStateException("child failed");
+            }))
+            .join();
+        Assertions.assertThat(childFailure.getError()).hasMessage("child failed");
+        Assertions.assertThat(childFailure.getStackStepInfo().orElseThrow().previous().child().isError()).isTrue();
+
+        val empty = AsyncResultOrError.from(ResultOrError.on(() -> 1).filter(i -> i > 1))
+            .map(i -> i + 1)
+            .join();
+        Assertions.assertThat(empty.isSuccess()).isTrue();
+        Assertions.assertThat(empty.getOption()).isEmpty();
+    }
+
+    @Test
+    void test54() {
+        val zipped = AsyncResultOrError.zip(
+            AsyncResultOrError.supplyAsync(() -> "a"),
+            AsyncResultOrError.supplyAsync(() -> 2),
+            String::repeat
+        ).join();
+        Assertions.assertThat(zipped.get()).isEqualTo("aa");
+        Assertions.assertThat(zipped.getStackStepInfo().orElseThrow().previous().child()).isNotNull();
+
+        val zipFailure = AsyncResultOrError.zip(
+            AsyncResultOrError.supplyAsync(() -> "a"),
+            AsyncResultOrError.<Integer>supplyAsync(() -> {
+                throw new IllegalStateException("second failed");
+            }),
+            String::repeat
+        ).join();
+        Assertions.assertThat(zipFailure.getError()).hasMessage("second failed");
+
+        val all = AsyncResultOrError.allOf(Stream.of(1, 2, 3)
+            .map(i -> AsyncResultOrError.supplyAsync(() -> i * 10))
+            .toList()
+        ).join();
+        Assertions.assertThat(all.get()).containsExactly(10, 20, 30);
+        // allOf, one step per branch and the terminal step
+        Assertions.assertThat(frames(all.getStackStepInfo().orElseThrow())).hasSize(5);
+
+        val allFailure = AsyncResultOrError.allOf(Stream.of(1, 0, 2, 0)
+            .map(i -> AsyncResultOrError.supplyAsync(() -> 10 / i))
+            .toList()
+        ).join();
+        Assertions.assertThat(allFailure.isSuccess()).isFalse();
+        Assertions.assertThat(allFailure.getError()).isInstanceOf(ArithmeticException.class);
+        val branchSteps = new ArrayList<StackStepInfo<?>>();
+        for (StackStepInfo<?> current = allFailure.getStackStepInfo().orElseThrow().previous().previous();
+             null != current; current = current.previous()) {
+            branchSteps.add(current);
+        }
+        Assertions.assertThat(branchSteps).hasSize(4)
+            .extracting(StackStepInfo::isError)
+            .containsExactly(true, false, true, false);
+
+        val noTrace = AsyncResultOrError.from(ResultOrError.withStackCapture(StackCapture.NO_TRACE).on(() -> 1))
+            .map(i -> i + 1)
+            .mapAsync(i -> i + 1)
+            .join();
+        Assertions.assertThat(noTrace.get()).isEqualTo(3);
+        Assertions.assertThat(noTrace.getStackStepInfo().orElseThrow().previous()).isNull();
+    }
+
+    @Test
+    void test55() {
+        val runs = new AtomicInteger();
+        val mono = Reactive.mono(ResultOrError.on(runs::incrementAndGet)
+            .map(i -> i * 10));
+        Assertions.assertThat(runs).hasValue(0);
+        StepVerifier.create(mono).expectNext(10).verifyComplete();
+        StepVerifier.create(mono.subscribeOn(Schedulers.boundedElastic())).expectNext(20).verifyComplete();
+
+        StepVerifier.create(Reactive.mono(ResultOrError.on(() -> 1).filter(i -> i > 1))).verifyComplete();
+
+        StepVerifier.create(Reactive.mono(ResultOrError.on(() -> 1).map(i -> i / 0)))
+            .expectErrorSatisfies(e -> {
+                Assertions.assertThat(e).isInstanceOf(ResultOrErrorException.class)
+                    .hasCauseInstanceOf(ArithmeticException.class);
+                // on, map and the terminal step, all written in this method
+                Assertions.assertThat(frames(((ResultOrErrorException) e).getStackStepInfo()))
+                    .hasSize(3)
+                    .allMatch(f -> f.getMethodName().equals("test55"));
+            })
+            .verify();
+
+        StepVerifier.create(Reactive.result(ResultOrError.on(() -> 1).map(i -> i / 0)))
+            .assertNext(r -> Assertions.assertThat(r.isSuccess()).isFalse())
+            .verifyComplete();
+        StepVerifier.create(Mono.just(1).flatMap(i -> Reactive.mono(ResultOrError.on(() -> i + 1))))
+            .expectNext(2)
+            .verifyComplete();
+    }
+
+    @Test
+    void test56() {
+        val elements = List.of(5, 0, 2, 0, 1);
+        for (val parallelism : List.of(
+            Parallelism.SEQUENTIAL,
+            Parallelism.forkJoin(),
+            Parallelism.forkJoin(new ForkJoinPool(2)),
+            Parallelism.virtualThreads(2)
+        )) {
+            val partitioned = ResultOrError.traverse(elements, i -> 10 / i, parallelism);
+            Assertions.assertThat(partitioned.successes()).as(parallelism.toString()).containsExactly(2, 5, 10);
+            Assertions.assertThat(partitioned.failures())
+                .extracting(Partitioned.ElementFailure::index)
+                .containsExactly(1, 3);
+            Assertions.assertThat(partitioned.failures())
+                .allMatch(f -> f.error() instanceof ArithmeticException)
+                .allMatch(f -> f.stackStepInfo().isError());
+            Assertions.assertThat(partitioned.size()).isEqualTo(5);
+            Assertions.assertThat(partitioned.toResult().getError()).isInstanceOf(ArithmeticException.class);
+        }
+        Assertions.assertThat(ResultOrError.traverse(List.of(1, 2), i -> i * 2).toResult().get()).containsExactly(2, 4);
+    }
+
+    @Test
+    void test57() throws Exception {
+        val running = new AtomicInteger();
+        val maxRunning = new AtomicInteger();
+        val chains = Stream.iterate(0, i -> i + 1).limit(20)
+            .map(i -> ResultOrError.on(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    Thread.sleep(10);
+                    running.decrementAndGet();
+                    return i;
+                })
+                .map(v -> 100 / (v % 7)))
+            .toList();
+        val partitioned = ResultOrError.sequence(chains, Parallelism.virtualThreads(3));
+        Assertions.assertThat(maxRunning.get()).isBetween(1, 3);
+        Assertions.assertThat(partitioned.successes()).hasSize(17);
+        Assertions.assertThat(partitioned.failures())
+            .extracting(Partitioned.ElementFailure::index)
+            .containsExactly(0, 7, 14);
+        // the failed chain keeps all of its steps
+        Assertions.assertThat(frames(partitioned.failures().getFirst().stackStepInfo())).hasSize(2);
+        Assertions.assertThat(partitioned.failures().getFirst().element()).isSameAs(chains.getFirst());
+    }
+
+    @Test
+    void test58() {
+        val partitioned = Stream.iterate(0, i -> i + 1).limit(1000)
+            .parallel()
+            .collect(ResultOrError.toPartitioned(i -> 1000 / (i % 100)));
+        Assertions.assertThat(partitioned.successes()).hasSize(990);
+        Assertions.assertThat(partitioned.failures())
+            .extracting(Partitioned.ElementFailure::index)
+            .containsExactlyElementsOf(Stream.iterate(0, i -> i + 100).limit(10).toList());
+        Assertions.assertThat(partitioned.failures())
+            .extracting(Partitioned.ElementFailure::element)
+            .containsExactlyElementsOf(Stream.iterate(0, i -> i + 100).limit(10).toList());
+
+        val sequenced = Stream.of(1, 0, 2)
+            .map(i -> ResultOrError.on(() -> 2 / i))
+            .parallel()
+            .collect(ResultOrError.toPartitioned());
+        Assertions.assertThat(sequenced.successes()).containsExactly(2, 1);
+        Assertions.assertThat(sequenced.failures()).singleElement()
+            .extracting(Partitioned.ElementFailure::index)
+            .isEqualTo(1);
+    }
+
+    @Test
+    void test59() {
+        var chain = ResultOrError.on(() -> 0);
+        for (int i = 0; i < 10_000; i++) {
+            chain = chain.map(v -> v + 1);
+        }
+        val longTrace = new StringBuilder();
+        chain.getResult().traceDebugOrError(() -> true, longTrace::append, () -> true, longTrace::append);
+        Assertions.assertThat(longTrace).contains("... trace truncated");
+        Assertions.assertThat(longTrace.length()).isLessThan(20 * 1024);
+
+        val toStringCalls = new AtomicInteger();
+        val bigList = Stream.iterate(0, i -> i + 1).limit(100_000).toList();
+        val trace = new StringBuilder();
+        ResultOrError.on(() -> bigList)
+            .map(l -> "x".repeat(1000))
+            .map(x -> new Object() {
+                @Override
+                public String toString() {
+                    toStringCalls.incrementAndGet();
+                    return x;
+                }
+            })
+            .getResult()
+            .traceDebugOrError(() -> true, trace::append, () -> true, trace::append);
+        Assertions.assertThat(trace.length()).isLessThan(2000);
+        Assertions.assertThat(trace).contains("[0, 1, 2", " ...]", "xxx ...");
+        Assertions.assertThat(toStringCalls).hasValue(2);
+
+        val formatted = new StringBuilder();
+        StackLogUtil.setValueFormatter(v -> v.getClass().getName());
+        try {
+            ResultOrError.on(() -> new Object() {
+                    @Override
+                    public String toString() {
+                        toStringCalls.incrementAndGet();
+                        return "rendered";
+                    }
+                })
+                .getResult()
+                .traceDebugOrError(() -> true, formatted::append, () -> true, formatted::append);
+        } finally {
+            StackLogUtil.setValueFormatter(null);
+        }
+        Assertions.assertThat(formatted).contains("ResultOrErrorTest$").doesNotContain("rendered");
+        Assertions.assertThat(toStringCalls).hasValue(2);
+
+        val disabled = new StringBuilder();
+        ResultOrError.on(() -> new Object() {
+                @Override
+                public String toString() {
+                    toStringCalls.incrementAndGet();
+                    return "rendered";
+                }
+            })
+            .getResult()
+            .traceDebugOrError(log)
+            .traceDebugOrError(() -> false, disabled::append, () -> false, disabled::append);
+        Assertions.assertThat(disabled).isEmpty();
+        Assertions.assertThat(toStringCalls).hasValue(2);
+    }
+
+    @Test
+    void test60() {
+        val ring = new TraceRingBuffer(4);
+        val failure = ResultOrError.on(() -> 1)
+            .flatMap(i -> ResultOrError.on(() -> i + 1).map(i2 -> i2 / 0))
+            .getResult()
+            .emitTrace(ring, 1000);
+        Assertions.assertThat(failure.isSuccess()).isFalse();
+        // terminal, flatMap, map and on of the child, on
+        Assertions.assertThat(ring.written()).isEqualTo(5);
+        val events = ring.snapshot();
+        Assertions.assertThat(events).hasSize(4)
+            .extracting(TraceEvent::step)
+            .containsExactly(1, 2, 3, 4);
+        Assertions.assertThat(events).extracting(TraceEvent::traceId).containsOnly(events.getFirst().traceId());
+        Assertions.assertThat(events).extracting(TraceEvent::depth).containsExactly(0, 1, 1, 0);
+        Assertions.assertThat(events.get(1).error()).contains("ArithmeticException");
+        Assertions.assertThat(events.get(3).error()).isNull();
+        Assertions.assertThat(events).allMatch(e -> e.frame().contains("test60"));
+
+        val sampled = new TraceRingBuffer(1000);
+        for (int i = 0; i < 1000; i++) {
+            ResultOrError.on(() -> 1).getResult().emitTrace(sampled, 100);
+        }
+        Assertions.assertThat(sampled.written()).isBetween(1L, 200L);
+
+        val disabled = new TraceSink() {
+            @Override
+            public void accept(TraceEvent event) {
+                throw new IllegalStateException("disabled sink called");
+            }
+
+            @Override
+            public boolean isEnabled() {
+                return false;
+            }
+        };
+        Assertions.assertThat(StackLogUtil.emitTrace(failure.getStackStepInfo().orElseThrow(), disabled, 1)).isFalse();
+        Assertions.assertThat(StackLogUtil.emitTrace(
+            failure.getStackStepInfo().orElseThrow(),
+            TraceSink.keyValues(log, org.slf4j.event.Level.INFO),
+            1
+        )).isEqualTo(log.isInfoEnabled());
+    }
+
+    @Test
+    void test61() {
+        for (val parallelism : List.of(
+            Parallelism.SEQUENTIAL,
+            Parallelism.forkJoin(),
+            Parallelism.forkJoin(new ForkJoinPool(2)),
+            Parallelism.virtualThreads(2)
+        )) {
+            // the flatMap mapper throws outside of the steps, run() itself throws for that chain
+            val chains = List.of(
+                ResultOrError.on(() -> 1),
+                ResultOrError.on(() -> 2).<Integer>flatMap(i -> {
+                    throw new IllegalStateException("escaped");
+                }),
+                ResultOrError.on(() -> 3)
+            );
+            val partitioned = ResultOrError.sequence(chains, parallelism);
+            Assertions.assertThat(partitioned.successes()).as(parallelism.toString()).containsExactly(1, 3);
+            Assertions.assertThat(partitioned.failures()).singleElement()
+                .satisfies(f -> {
+                    Assertions.assertThat(f.index()).isOne();
+                    Assertions.assertThat(f.element()).isSameAs(chains.get(1));
+                    Assertions.assertThat(f.error()).hasMessage("escaped");
+                    Assertions.assertThat(f.stackStepInfo().isError()).isTrue();
+                });
+
+            val traversed = ResultOrError.traverse(List.of(1, 2, 3), i -> {
+                if (i == 2) {
+                    throw new AssertionError("error, not exception");
+                }
+                return i;
+            }, parallelism);
+            Assertions.assertThat(traversed.successes()).containsExactly(1, 3);
+            Assertions.assertThat(traversed.failures()).singleElement()
+                .extracting(Partitioned.ElementFailure::error)
+                .isInstanceOf(AssertionError.class);
+        }
+
+        val collected = Stream.of(
+                ResultOrError.on(() -> 1),
+                ResultOrError.on(() -> 2).<Integer>flatMap(i -> {
+                    throw new IllegalStateException("escaped");
+                })
+            )
+            .parallel()
+            .collect(ResultOrError.toPartitioned());
+        Assertions.assertThat(collected.successes()).containsExactly(1);
+        Assertions.assertThat(collected.failures()).singleElement()
+            .extracting(Partitioned.ElementFailure::index)
+            .isEqualTo(1);
+    }
+
+    @Test
+    void test62() {
+        val runs = new AtomicInteger();
+        val memoizeByDefault = ResultOrError.isMemoizeByDefault();
+        try {
+            ResultOrError.setMemoizeByDefault(true);
+            val chain = ResultOrError.on(runs::incrementAndGet).map(i -> i * 10);
+            Assertions.assertThat(chain.get()).isEqualTo(10);
+
+            Assertions.assertThat(ResultOrError.sequence(List.of(chain)).successes()).containsExactly(10);
+            Assertions.assertThat(ResultOrError.sequence(List.of(chain), Parallelism.virtualThreads(2)).successes())
+                .containsExactly(10);
+            Assertions.assertThat(Stream.of(chain).collect(ResultOrError.toPartitioned()).successes()).containsExactly(10);
+            Assertions.assertThat(AsyncResultOrError.from(chain).map(i -> i + 1).join().get()).isEqualTo(11);
+            Assertions.assertThat(runs).hasValue(1);
+
+            val failing = ResultOrError.on(() -> {
+                runs.incrementAndGet();
+                throw new IllegalStateException("once");
+            });
+            Assertions.assertThat(ResultOrError.sequence(List.of(failing, failing)).failures()).hasSize(2);
+            Assertions.assertThat(failing.getResult().isSuccess()).isFalse();
+            Assertions.assertThat(runs).hasValue(2);
+        } finally {
+            ResultOrError.setMemoizeByDefault(memoizeByDefault);
+        }
+    }
+
+    static List<StackWalker.StackFrame> frames(StackStepInfo<?> stack) {
+        val frames = new ArrayList<StackWalker.StackFrame>();
+        for (StackStepInfo<?> current = stack; null != current; current = current.previous()) {
+            frames.add(current.stackFrame());
+        }
+        return frames;
+    }
+
 
     @Data
     static
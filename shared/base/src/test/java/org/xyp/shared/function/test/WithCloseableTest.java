@@ -7,10 +7,19 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.xyp.shared.function.Fun;
 import org.xyp.shared.function.ValueHolder;
+import org.xyp.shared.function.wrapper.Reactive;
 import org.xyp.shared.function.wrapper.ResultOrError;
+import org.xyp.shared.function.wrapper.ResultOrErrorException;
+import org.xyp.shared.function.wrapper.StackCapture;
 import org.xyp.shared.function.wrapper.StackStepInfo;
 import org.xyp.shared.function.wrapper.WithCloseable;
 
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.stream.Stream;
+
 class WithCloseableTest {
     @Test
     void test1() {
@@ -485,6 +494,86 @@ class WithCloseableTest {
             res.traceDebugOrError(() -> true, System.out::println, () -> true, System.out::println);
         });
     }
+    @Test
+    void test20() {
+        val holder = new ValueHolder<MockCloseable>();
+        val result = WithCloseable.withStackCapture(StackCapture.ON_ERROR)
+            .open(MockCloseable::new)
+            .consume(holder::setValue)
+            .map(c -> 1)
+            .map(i -> i / 0)
+            .closeAndGetResult();
+
+        Assertions.assertThat(result.isSuccess()).isFalse();
+        Assertions.assertThat(holder.value().isClosed()).isTrue();
+        val frames = new ArrayList<StackWalker.StackFrame>();
+        for (StackStepInfo<?> current = result.getStackStepInfo().orElseThrow(); null != current; current = current.previous()) {
+            if (current.isError()) {
+                Assertions.assertThat(current.stackFrame()).isNotNull();
+            } else {
+                frames.add(current.stackFrame());
+            }
+        }
+        Assertions.assertThat(frames).isNotEmpty().containsOnlyNulls();
+    }
+    @Test
+    void test21() {
+        val holder = new ValueHolder<MockCloseable>();
+        val result = WithCloseable.withStackCapture(StackCapture.NO_TRACE)
+            .open(MockCloseable::new)
+            .consume(holder::setValue)
+            .map(c -> 1)
+            .flatMap(i -> ResultOrError.on(() -> i + 1))
+            .convertToResult()
+            .map(i -> i + 1)
+            .getResult();
+
+        Assertions.assertThat(result.get()).isEqualTo(3);
+        Assertions.assertThat(holder.value().isClosed()).isTrue();
+        Assertions.assertThat(result.getStackStepInfo().orElseThrow().previous()).isNull();
+    }
+
+    @Test
+    void test22() {
+        val holder = new ValueHolder<MockCloseable>();
+        val mono = Reactive.mono(WithCloseable.open(MockCloseable::new)
+            .consume(holder::setValue)
+            .map(c -> 1));
+        Assertions.assertThat(holder.isEmpty()).isTrue();
+        StepVerifier.create(mono).expectNext(1).verifyComplete();
+        Assertions.assertThat(holder.value().isClosed()).isTrue();
+
+        val errorHolder = new ValueHolder<Throwable>();
+        val failing = Reactive.mono(WithCloseable.open(MockCloseable::new, (c, e) -> errorHolder.setValue(e))
+            .consume(holder::setValue)
+            .map(c -> 1 / 0));
+        StepVerifier.create(failing)
+            .expectErrorSatisfies(e -> {
+                Assertions.assertThat(e).isInstanceOf(ResultOrErrorException.class)
+                    .hasCauseInstanceOf(ArithmeticException.class);
+                Assertions.assertThat(((ResultOrErrorException) e).getStackStepInfo().previous()).isNotNull();
+            })
+            .verify();
+        Assertions.assertThat(errorHolder.value()).isInstanceOf(ArithmeticException.class);
+        Assertions.assertThat(holder.value().isClosed()).isTrue();
+    }
+
+    @Test
+    void test23() {
+        val holder = new ValueHolder<MockCloseable>();
+        val flux = Reactive.flux(WithCloseable.open(MockCloseable::new)
+            .consume(holder::setValue)
+            .map(c -> Stream.iterate(1, i -> i + 1)));
+        // cancelled after 3 elements of an endless stream, the closeable is still closed
+        StepVerifier.create(flux.take(3)).expectNext(1, 2, 3).verifyComplete();
+        Assertions.assertThat(holder.value().isClosed()).isTrue();
+
+        StepVerifier.create(Flux.just(1, 0, 2).transform(Reactive.mapToResult(i -> 2 / i)))
+            .assertNext(r -> Assertions.assertThat(r.get()).isEqualTo(2))
+            .assertNext(r -> Assertions.assertThat(r.getError()).isInstanceOf(ArithmeticException.class))
+            .assertNext(r -> Assertions.assertThat(r.get()).isOne())
+            .verifyComplete();
+    }
 
     @Getter
     static class MockCloseable implements AutoCloseable {
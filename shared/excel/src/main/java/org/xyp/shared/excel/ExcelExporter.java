@@ -10,6 +10,7 @@ import org.xyp.shared.excel.model.ExportColumnModel;
 import org.xyp.shared.excel.model.ExportSheetModel;
 import org.xyp.shared.excel.readwriter.ExcelCellWriter;
 import org.xyp.shared.function.wrapper.ResultOrError;
+import org.xyp.shared.function.wrapper.StackCapture;
 import org.xyp.shared.utils.BeanUtils;
 
 import java.util.*;
@@ -250,7 +251,8 @@ public class ExcelExporter implements IExport<Workbook> {
                 colIndex = Optional.ofNullable(columnModel.getColIdx()).orElse(colIndex);
                 CellStyle cellStyle = cellStyleIter.next();
 
-                Object value = ResultOrError.on(() -> {
+                // per cell, the trace is never logged, only the message
+                Object value = ResultOrError.withStackCapture(StackCapture.ON_ERROR).on(() -> {
                         String key = columnModel.getKey();
                         return BeanUtils.propertyValue(valueMap, key);
                     }).getResult()
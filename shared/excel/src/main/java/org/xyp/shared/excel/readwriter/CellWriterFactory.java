@@ -3,6 +3,7 @@ package org.xyp.shared.excel.readwriter;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.CellStyle;
 import org.xyp.shared.function.wrapper.ResultOrError;
+import org.xyp.shared.function.wrapper.StackCapture;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -33,7 +34,8 @@ public class CellWriterFactory {
 
     @SuppressWarnings("unchecked")
     public static ICellWriter<Object> getCellWriter(Class<?> clz) {
-        return ResultOrError.on(() -> (ICellWriter<Object>) map.getOrDefault(clz, map.get(Object.class)))
+        return ResultOrError.withStackCapture(StackCapture.OFF)
+            .on(() -> (ICellWriter<Object>) map.getOrDefault(clz, map.get(Object.class)))
             .get();
     }
 
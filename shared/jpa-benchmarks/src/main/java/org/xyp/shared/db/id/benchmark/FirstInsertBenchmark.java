@@ -0,0 +1,69 @@
+package org.xyp.shared.db.id.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyp.shared.db.id.generator.table.config.IdGenProperties;
+import org.xyp.shared.db.id.generator.table.dialect.IdGenDialectH2;
+import org.xyp.shared.db.id.generator.table.impl.LongIdDbTableGenerator;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * cost of one db round of the generator, without local segments (new generator each invocation):<br/>
+ * firstInsert : id record not exists, h2 dialect upgrades to table lock and creates it<br/>
+ * existingRecord : id record exists, moved forward by one statement
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FirstInsertBenchmark {
+
+    HikariDataSource dataSource;
+    IdGenProperties properties;
+    IdGenDialectH2 dialect;
+    long sequence;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        dataSource = H2IdTable.dataSource("jdbc:h2:mem:first_insert_bench;DB_CLOSE_DELAY=-1", 2);
+        H2IdTable.create(dataSource);
+        properties = H2IdTable.properties();
+        properties.setAsyncRefill(false);
+        dialect = new IdGenDialectH2(properties);
+        new LongIdDbTableGenerator(dialect, properties).prewarm("existing_record", dataSource::getConnection);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        H2IdTable.truncate(dataSource);
+        dataSource.close();
+    }
+
+    @Benchmark
+    public long firstInsert() {
+        val generator = new LongIdDbTableGenerator(dialect, properties);
+        return generator.nextLongId("first_insert_" + sequence++, dataSource::getConnection);
+    }
+
+    @Benchmark
+    public long existingRecord() {
+        val generator = new LongIdDbTableGenerator(dialect, properties);
+        return generator.nextLongId("existing_record", dataSource::getConnection);
+    }
+}
@@ -0,0 +1,65 @@
+package org.xyp.shared.db.id.benchmark;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.val;
+import org.xyp.shared.db.id.generator.table.config.IdGenProperties;
+import org.xyp.shared.db.id.generator.table.dialect.DialectType;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * id table on h2 with the same layout as sql/schema-h2.sql of web-api
+ */
+public final class H2IdTable {
+
+    public static final String TABLE = "id_table";
+
+    private H2IdTable() {
+    }
+
+    public static IdGenProperties properties() {
+        val properties = new IdGenProperties();
+        properties.setTable(TABLE);
+        properties.setEntityNameColumn("entity_name");
+        properties.setPrevValueColumn("prev_value");
+        properties.setStepSizeColumn("step_size");
+        properties.setFetchSizeColumn("fetch_size");
+        properties.setDialect(DialectType.H2);
+        return properties;
+    }
+
+    public static HikariDataSource dataSource(String jdbcUrl, int poolSize) {
+        val config = new HikariConfig();
+        config.setJdbcUrl(jdbcUrl);
+        config.setUsername("sa");
+        config.setPassword("sa");
+        config.setMaximumPoolSize(poolSize);
+        config.setPoolName("bench-" + poolSize);
+        return new HikariDataSource(config);
+    }
+
+    public static void create(DataSource dataSource) throws SQLException {
+        try (
+            val conn = dataSource.getConnection();
+            val st = conn.createStatement()
+        ) {
+            st.execute("create table if not exists " + TABLE + " ("
+                + "entity_name varchar(256) not null primary key, "
+                + "prev_value bigint not null, "
+                + "step_size integer not null, "
+                + "fetch_size integer not null)");
+            st.execute("merge into " + TABLE + " key (entity_name) values ('for_lock', 1, 1, 1)");
+        }
+    }
+
+    public static void truncate(DataSource dataSource) throws SQLException {
+        try (
+            val conn = dataSource.getConnection();
+            val st = conn.createStatement()
+        ) {
+            st.execute("delete from " + TABLE + " where entity_name <> 'for_lock'");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package org.xyp.shared.db.id.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.val;
+import org.hibernate.generator.EventType;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyp.shared.db.id.generator.table.config.TableIdGeneratorConfig;
+import org.xyp.shared.db.id.generator.table.dialect.IdGenDialectH2;
+import org.xyp.shared.db.id.generator.table.hibernate.DefaultBeforeExecutionGeneratorImpl;
+import org.xyp.shared.db.id.generator.table.impl.LongIdDbTableGenerator;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link DefaultBeforeExecutionGeneratorImpl#generate} end to end as hibernate calls it on insert,
+ * for a Long id and for a record wrapping the id, without session (no jdbc batch preallocation)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class HibernateGeneratorBenchmark {
+
+    public record WrappedId(Long id) {
+    }
+
+    @Param({"long", "wrapped"})
+    String idType;
+
+    HikariDataSource dataSource;
+    DefaultBeforeExecutionGeneratorImpl generator;
+    final Object owner = new Object();
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        dataSource = H2IdTable.dataSource("jdbc:h2:mem:hibernate_bench;DB_CLOSE_DELAY=-1", 8);
+        H2IdTable.create(dataSource);
+        val properties = H2IdTable.properties();
+        val idGenerator = new LongIdDbTableGenerator(new IdGenDialectH2(properties), properties);
+        TableIdGeneratorConfig.getLongIdGenerator = name -> idGenerator;
+        TableIdGeneratorConfig.getDataSource = name -> dataSource;
+        generator = new DefaultBeforeExecutionGeneratorImpl(
+            "hibernate_bench_" + idType,
+            "",
+            1000,
+            1,
+            "long".equals(idType) ? Long.class : WrappedId.class
+        );
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        H2IdTable.truncate(dataSource);
+        dataSource.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public Object generate1Thread() {
+        return generator.generate(null, owner, null, EventType.INSERT);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public Object generate8Threads() {
+        return generator.generate(null, owner, null, EventType.INSERT);
+    }
+}
@@ -0,0 +1,105 @@
+package org.xyp.shared.db.id.benchmark;
+
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.val;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.xyp.shared.db.id.generator.JdbcConnectionAccessorFactory;
+import org.xyp.shared.db.id.generator.LongIdRange;
+import org.xyp.shared.db.id.generator.table.dialect.IdGenDialectH2;
+import org.xyp.shared.db.id.generator.table.impl.LongIdDbTableGenerator;
+
+import java.sql.SQLException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * throughput of {@link LongIdDbTableGenerator} on in memory h2, 1 / 8 / 64 threads
+ * sharing one generator and one entity<br/>
+ * fetch size and step size are stored in the id record when created, so each combination
+ * uses its own entity; run with -prof gc for allocations per id (gc.alloc.rate.norm)
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TableIdGeneratorBenchmark {
+
+    @Param({"50", "1000"})
+    int fetchSize;
+
+    @Param({"1", "10"})
+    int stepSize;
+
+    @Param({"true", "false"})
+    boolean asyncRefill;
+
+    HikariDataSource dataSource;
+    LongIdDbTableGenerator generator;
+    JdbcConnectionAccessorFactory connectionFactory;
+    String entityName;
+
+    @Setup(Level.Trial)
+    public void setup() throws SQLException {
+        dataSource = H2IdTable.dataSource("jdbc:h2:mem:id_bench;DB_CLOSE_DELAY=-1", 8);
+        H2IdTable.create(dataSource);
+        val properties = H2IdTable.properties();
+        properties.setAsyncRefill(asyncRefill);
+        generator = new LongIdDbTableGenerator(new IdGenDialectH2(properties), properties);
+        connectionFactory = dataSource::getConnection;
+        entityName = "bench_" + fetchSize + "_" + stepSize + "_" + asyncRefill;
+        generator.prewarm(entityName, stepSize, fetchSize, connectionFactory);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws SQLException {
+        H2IdTable.truncate(dataSource);
+        dataSource.close();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public long nextLongId1Thread() {
+        return generator.nextLongId(entityName, stepSize, fetchSize, connectionFactory);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public long nextLongId8Threads() {
+        return generator.nextLongId(entityName, stepSize, fetchSize, connectionFactory);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public long nextLongId64Threads() {
+        return generator.nextLongId(entityName, stepSize, fetchSize, connectionFactory);
+    }
+
+    /**
+     * boxed api, for comparison of allocations with {@link #nextLongId1Thread()}
+     */
+    @Benchmark
+    @Threads(1)
+    public Long nextIdBoxed1Thread() {
+        return generator.nextId(entityName, 1, stepSize, fetchSize, connectionFactory).getFirst();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public LongIdRange reserve100Ids1Thread() {
+        return generator.reserve(entityName, 100, stepSize, fetchSize, connectionFactory);
+    }
+}
@@ -0,0 +1,178 @@
+package org.xyp.shared.db.id.benchmark.contention;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.h2.tools.Server;
+import org.xyp.shared.db.id.benchmark.H2IdTable;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * N generator instances against one id table of an h2 server on localhost,
+ * as threads of this jvm or as forked jvms (fork=true), the closest to several nodes of a service<br/>
+ * prints throughput, refill and wait latency percentiles, lock upgrades, and per entity duplicates and gaps<br/>
+ * java -cp target/benchmarks.jar org.xyp.shared.db.id.benchmark.contention.ContentionSimulator instances=8 dialect=POSTGRES
+ */
+@Slf4j
+public final class ContentionSimulator {
+
+    /**
+     * forked jvms need this long to start up and open their pools
+     */
+    private static final long FORK_START_DELAY_MILLIS = 3_000;
+
+    private ContentionSimulator() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        val options = SimulatorOptions.parse(args);
+        val server = Server.createTcpServer("-tcpPort", String.valueOf(options.port()), "-ifNotExists").start();
+        try {
+            val jdbcUrl = "jdbc:h2:tcp://localhost:" + server.getPort() + "/mem:contention;DB_CLOSE_DELAY=-1" + options.h2Mode();
+            try (val dataSource = H2IdTable.dataSource(jdbcUrl, 1)) {
+                H2IdTable.create(dataSource);
+                H2IdTable.truncate(dataSource);
+                val lastIdLocksRow = EmulatedDialect.lastIdLocksRow(ContentionWorker.dialectOf(options), jdbcUrl);
+                val workers = new ArrayList<ContentionWorker>();
+                for (int i = 0; i < options.instances(); i++) {
+                    workers.add(new ContentionWorker(options, jdbcUrl, i, lastIdLocksRow));
+                }
+                val results = options.fork() ? runForked(options, workers) : runInThreads(options, workers);
+                report(options, results);
+            }
+        } finally {
+            server.stop();
+        }
+    }
+
+    private static List<InstanceResult> runInThreads(SimulatorOptions options, List<ContentionWorker> workers) throws Exception {
+        val startMillis = System.currentTimeMillis();
+        try (val executor = Executors.newFixedThreadPool(options.instances())) {
+            val futures = new ArrayList<Future<InstanceResult>>();
+            for (val worker : workers) {
+                futures.add(executor.submit((Callable<InstanceResult>) () -> worker.run(startMillis)));
+            }
+            val results = new ArrayList<InstanceResult>();
+            for (val future : futures) {
+                results.add(future.get());
+            }
+            return results;
+        }
+    }
+
+    private static List<InstanceResult> runForked(SimulatorOptions options, List<ContentionWorker> workers) throws Exception {
+        val startMillis = System.currentTimeMillis() + FORK_START_DELAY_MILLIS;
+        val processes = new ArrayList<Process>();
+        val outputs = new ArrayList<Path>();
+        for (int i = 0; i < workers.size(); i++) {
+            val output = Files.createTempFile("id-contention-" + i + "-", ".bin");
+            outputs.add(output);
+            processes.add(new ProcessBuilder(workers.get(i).javaCommand(output.toString(), startMillis))
+                .inheritIO()
+                .start());
+        }
+        val results = new ArrayList<InstanceResult>();
+        for (int i = 0; i < processes.size(); i++) {
+            val process = processes.get(i);
+            if (!process.waitFor(options.durationSeconds() + 60L + FORK_START_DELAY_MILLIS / 1000, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+                throw new IllegalStateException("instance " + i + " did not finish");
+            }
+            if (process.exitValue() != 0) {
+                throw new IllegalStateException("instance " + i + " exited with " + process.exitValue());
+            }
+            try (val in = new DataInputStream(new BufferedInputStream(Files.newInputStream(outputs.get(i))))) {
+                results.add(InstanceResult.readFrom(in));
+            } finally {
+                Files.deleteIfExists(outputs.get(i));
+            }
+        }
+        return results;
+    }
+
+    private static void report(SimulatorOptions options, List<InstanceResult> results) {
+        val seconds = (double) options.durationSeconds();
+        val reservations = results.stream().mapToLong(InstanceResult::reservations).sum();
+        val errors = results.stream().mapToLong(InstanceResult::errors).sum();
+        val lockUpgrades = results.stream().mapToLong(InstanceResult::lockUpgrades).sum();
+        val refills = concat(results.stream().map(InstanceResult::refillNanos).toList());
+        val waits = concat(results.stream().map(InstanceResult::waitNanos).toList());
+
+        val idsByEntity = new LinkedHashMap<String, List<long[]>>();
+        results.forEach(r -> r.ids().forEach((entityName, ids) ->
+            idsByEntity.computeIfAbsent(entityName, k -> new ArrayList<>()).add(ids)));
+
+        val out = new StringBuilder();
+        out.append(String.format("%n%s, %d instances%s x %d threads, %s, mix %s, fetch size %d, async refill %s%n",
+            options.dialect(), options.instances(), options.fork() ? " (forked)" : "", options.threads(),
+            options.allocationMode(), options.mix(), options.fetchSize(), options.asyncRefill()));
+        long totalIds = 0;
+        val entityLines = new ArrayList<String>();
+        for (val entry : idsByEntity.entrySet()) {
+            val ids = concat(entry.getValue());
+            totalIds += ids.length;
+            entityLines.add(entityLine(entry.getKey(), ids));
+        }
+        out.append(String.format("throughput   %.0f reservations/s, %.0f ids/s, %d errors%n",
+            reservations / seconds, totalIds / seconds, errors));
+        out.append(String.format("refill       %d, p50 %s, p90 %s, p99 %s, max %s%n",
+            refills.length, millis(refills, 0.5), millis(refills, 0.9), millis(refills, 0.99), millis(refills, 1)));
+        out.append(String.format("refill wait  %d, p50 %s, p99 %s, max %s%n",
+            waits.length, millis(waits, 0.5), millis(waits, 0.99), millis(waits, 1)));
+        out.append(String.format("lock upgrade %d%n", lockUpgrades));
+        entityLines.forEach(line -> out.append(line).append(System.lineSeparator()));
+        log.info("{}", out);
+    }
+
+    /**
+     * duplicates are ids handed out more than once, must be 0<br/>
+     * gaps are ids within min and max never handed out, segments left in memory at the end of the run
+     */
+    private static String entityLine(String entityName, long[] ids) {
+        if (ids.length == 0) {
+            return String.format("%-12s no ids", entityName);
+        }
+        Arrays.sort(ids);
+        long distinct = 1;
+        for (int i = 1; i < ids.length; i++) {
+            if (ids[i] != ids[i - 1]) {
+                distinct++;
+            }
+        }
+        val span = ids[ids.length - 1] - ids[0] + 1;
+        return String.format("%-12s ids %d, duplicates %d, gaps %d (%.1f%%), range %d..%d",
+            entityName, ids.length, ids.length - distinct, span - distinct,
+            100.0 * (span - distinct) / span, ids[0], ids[ids.length - 1]);
+    }
+
+    private static long[] concat(List<long[]> arrays) {
+        val result = new long[arrays.stream().mapToInt(a -> a.length).sum()];
+        int offset = 0;
+        for (val array : arrays) {
+            System.arraycopy(array, 0, result, offset, array.length);
+            offset += array.length;
+        }
+        return result;
+    }
+
+    private static String millis(long[] nanos, double percentile) {
+        if (nanos.length == 0) {
+            return "-";
+        }
+        val sorted = nanos.clone();
+        Arrays.sort(sorted);
+        val index = (int) Math.min(sorted.length - 1, Math.ceil(percentile * sorted.length) - 1);
+        return String.format("%.2fms", sorted[Math.max(0, index)] / 1e6);
+    }
+}
@@ -0,0 +1,211 @@
+package org.xyp.shared.db.id.benchmark.contention;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.xyp.shared.db.id.benchmark.H2IdTable;
+import org.xyp.shared.db.id.generator.table.dialect.IdGenDialect;
+import org.xyp.shared.db.id.generator.table.dialect.IdGenDialectH2;
+import org.xyp.shared.db.id.generator.table.dialect.IdGenDialectMssql;
+import org.xyp.shared.db.id.generator.table.dialect.IdGenDialectPostgres;
+import org.xyp.shared.db.id.generator.table.impl.LongIdDbTableGenerator;
+import org.xyp.shared.db.id.generator.table.metrics.IdGeneratorMetrics;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * one generator instance, like one jvm of a service: own generator, own connection pool,
+ * several threads reserving ids by the allocation mix until the deadline<br/>
+ * runs in a thread of the simulator, or as main of a forked jvm writing its result to a file
+ */
+@Slf4j
+final class ContentionWorker {
+
+    private final SimulatorOptions options;
+    private final String jdbcUrl;
+    private final int instance;
+    private final boolean lastIdLocksRow;
+
+    ContentionWorker(SimulatorOptions options, String jdbcUrl, int instance, boolean lastIdLocksRow) {
+        this.options = options;
+        this.jdbcUrl = jdbcUrl;
+        this.instance = instance;
+        this.lastIdLocksRow = lastIdLocksRow;
+    }
+
+    /**
+     * args : jdbc url, instance index, output file, start millis, last id locks row, then the simulator options
+     */
+    public static void main(String[] args) throws Exception {
+        val options = SimulatorOptions.parse(Arrays.copyOfRange(args, 5, args.length));
+        val worker = new ContentionWorker(options, args[0], Integer.parseInt(args[1]), Boolean.parseBoolean(args[4]));
+        val result = worker.run(Long.parseLong(args[3]));
+        try (val out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(args[2])))) {
+            result.writeTo(out);
+        }
+    }
+
+    static String entityName(int index) {
+        return "contention_" + index;
+    }
+
+    static IdGenDialect dialectOf(SimulatorOptions options) {
+        val properties = H2IdTable.properties();
+        return switch (options.dialect()) {
+            case POSTGRES -> new IdGenDialectPostgres(properties);
+            case MSSQL -> new IdGenDialectMssql(properties);
+            case H2 -> new IdGenDialectH2(properties);
+        };
+    }
+
+    InstanceResult run(long startMillis) throws Exception {
+        val properties = H2IdTable.properties();
+        properties.setAsyncRefill(options.asyncRefill());
+        properties.setAllocationMode(options.allocationMode());
+
+        val refillNanos = new ConcurrentLinkedQueue<Long>();
+        val waitNanos = new ConcurrentLinkedQueue<Long>();
+        val lockUpgrades = new AtomicLong();
+        val errors = new AtomicLong();
+        val reservations = new AtomicLong();
+
+        try (val dataSource = H2IdTable.dataSource(jdbcUrl, options.poolSize())) {
+            val dialect = new EmulatedDialect(dialectOf(options), new IdGenDialectH2(properties), dataSource, lastIdLocksRow);
+            val generator = new LongIdDbTableGenerator(dialect, properties);
+            generator.setMetrics(new IdGeneratorMetrics() {
+                @Override
+                public void refilled(String entityName, long nanos) {
+                    refillNanos.add(nanos);
+                }
+
+                @Override
+                public void lockUpgraded(String entityName) {
+                    lockUpgrades.incrementAndGet();
+                }
+
+                @Override
+                public void waitedForRefill(String entityName, long nanos) {
+                    waitNanos.add(nanos);
+                }
+            });
+
+            // forked instances start at the same moment, after all jvms are up
+            Thread.sleep(Math.max(0, startMillis - System.currentTimeMillis()));
+            val deadline = startMillis + options.durationSeconds() * 1000L;
+            val perThreadIds = new ArrayList<Map<String, LongBuffer>>();
+            val threads = new ArrayList<Thread>();
+            for (int t = 0; t < options.threads(); t++) {
+                val ids = new LinkedHashMap<String, LongBuffer>();
+                perThreadIds.add(ids);
+                threads.add(Thread.ofPlatform().name("instance-" + instance + "-" + t).start(() -> {
+                    val random = ThreadLocalRandom.current();
+                    while (System.currentTimeMillis() < deadline) {
+                        val entityName = entityName(random.nextInt(options.entities()));
+                        val idCount = pickIdCount(random.nextInt(options.totalWeight()));
+                        try {
+                            val range = generator.reserve(entityName, idCount, 1, options.fetchSize(), dataSource::getConnection);
+                            reservations.incrementAndGet();
+                            range.forEachId(ids.computeIfAbsent(entityName, k -> new LongBuffer())::add);
+                        } catch (Exception e) {
+                            errors.incrementAndGet();
+                            log.warn("reserve failed on instance {}, {}", instance, e.getMessage());
+                        }
+                    }
+                }));
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            // let background refills in flight finish before the pool is closed
+            Thread.sleep(200);
+            if (instance == 0 && !dialect.substituted().isEmpty()) {
+                log.warn("statements of {} emulated by h2 ones: {}", options.dialect(), dialect.substituted());
+            }
+
+            val merged = new LinkedHashMap<String, long[]>();
+            for (int e = 0; e < options.entities(); e++) {
+                val entityName = entityName(e);
+                val buffer = new LongBuffer();
+                perThreadIds.forEach(ids -> {
+                    val threadIds = ids.get(entityName);
+                    if (null != threadIds) {
+                        buffer.addAll(threadIds);
+                    }
+                });
+                merged.put(entityName, buffer.toArray());
+            }
+            return new InstanceResult(
+                reservations.get(),
+                errors.get(),
+                lockUpgrades.get(),
+                toArray(refillNanos),
+                toArray(waitNanos),
+                merged
+            );
+        }
+    }
+
+    private int pickIdCount(int weight) {
+        var remaining = weight;
+        for (val allocation : options.mix()) {
+            remaining -= allocation.weight();
+            if (remaining < 0) {
+                return allocation.idCount();
+            }
+        }
+        return options.mix().getLast().idCount();
+    }
+
+    private static long[] toArray(ConcurrentLinkedQueue<Long> values) {
+        return values.stream().mapToLong(Long::longValue).toArray();
+    }
+
+    /**
+     * growable long array, ids of a run can be millions
+     */
+    static final class LongBuffer {
+        private long[] values = new long[1024];
+        private int size;
+
+        void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void addAll(LongBuffer other) {
+            for (int i = 0; i < other.size; i++) {
+                add(other.values[i]);
+            }
+        }
+
+        long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    List<String> javaCommand(String outputFile, long startMillis) {
+        val command = new ArrayList<String>();
+        command.add(ProcessHandle.current().info().command().orElse("java"));
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path"));
+        command.add(ContentionWorker.class.getName());
+        command.add(jdbcUrl);
+        command.add(String.valueOf(instance));
+        command.add(outputFile);
+        command.add(String.valueOf(startMillis));
+        command.add(String.valueOf(lastIdLocksRow));
+        command.addAll(options.rawArgs());
+        return command;
+    }
+}
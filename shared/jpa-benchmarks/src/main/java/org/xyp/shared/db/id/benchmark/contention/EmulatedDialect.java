@@ -0,0 +1,171 @@
+package org.xyp.shared.db.id.benchmark.contention;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.xyp.shared.db.id.benchmark.H2IdTable;
+import org.xyp.shared.db.id.generator.table.dialect.IdGenDialect;
+import org.xyp.shared.db.id.generator.table.dialect.IdGenDialectH2;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * a dialect as far as h2 (in the compatibility mode of it) understands it:<br/>
+ * every statement is prepared against the database, statements h2 can't parse are replaced
+ * by the h2 dialect's, increment and return is turned off if not parsable<br/>
+ * the locking select is also run against a second connection, lock hints h2 parses but ignores
+ * (e.g. mssql with (updlock)) would otherwise hand out duplicates<br/>
+ * {@link #substituted()} tells which statements are not exercised as written
+ */
+@Slf4j
+final class EmulatedDialect implements IdGenDialect {
+
+    private final String updateIdSql;
+    private final String lastIdSql;
+    private final String lastIdWithoutLockSql;
+    private final String compareAndSetIdSql;
+    private final String initIdValueSql;
+    private final String tableLockSql;
+    private final boolean needUpgradeLock;
+    private final boolean supportsIncrementAndReturn;
+    private final String incrementAndReturnSql;
+    private final List<String> substituted = new ArrayList<>();
+
+    private static final String LOCK_PROBE_ENTITY = "for_lock";
+    private static final int LOCK_PROBE_TIMEOUT_MILLIS = 200;
+
+    /**
+     * @param lastIdLocksRow result of {@link #lastIdLocksRow(IdGenDialect, String)}, probed once before instances start
+     */
+    EmulatedDialect(IdGenDialect dialect, IdGenDialectH2 h2, DataSource dataSource, boolean lastIdLocksRow) throws SQLException {
+        try (val conn = dataSource.getConnection()) {
+            Function<String, Boolean> parsable = sql -> {
+                try (val ignored = conn.prepareStatement(sql)) {
+                    return true;
+                } catch (SQLException e) {
+                    return false;
+                }
+            };
+            updateIdSql = pick("updateId", dialect.getUpdateIdSql(), h2.getUpdateIdSql(), parsable);
+            lastIdSql = pick("lastId", dialect.getLastIdSql(), h2.getLastIdSql(),
+                sql -> lastIdLocksRow && parsable.apply(sql));
+            lastIdWithoutLockSql = pick("lastIdWithoutLock", dialect.getLastIdWithoutLockSql(), h2.getLastIdWithoutLockSql(), parsable);
+            compareAndSetIdSql = pick("compareAndSetId", dialect.getCompareAndSetIdSql(), h2.getCompareAndSetIdSql(), parsable);
+            initIdValueSql = pick("initIdValue", dialect.getInitIdValueSql(), h2.getInitIdValueSql(), parsable);
+            needUpgradeLock = dialect.needUpgradeLockIfIdRecordNotExist();
+            // dialects without upgrade, like mssql, have no table lock at all
+            tableLockSql = needUpgradeLock
+                ? pick("tableLock", dialect.getTableLockSql(), h2.getTableLockSql(), parsable)
+                : null;
+            if (dialect.supportsIncrementAndReturn() && !parsable.apply(dialect.getIncrementAndReturnSql())) {
+                substituted.add("incrementAndReturn (turned off)");
+                supportsIncrementAndReturn = false;
+                incrementAndReturnSql = null;
+            } else {
+                supportsIncrementAndReturn = dialect.supportsIncrementAndReturn();
+                incrementAndReturnSql = supportsIncrementAndReturn ? dialect.getIncrementAndReturnSql() : null;
+            }
+        }
+    }
+
+    private String pick(String name, String sql, String h2Sql, Function<String, Boolean> parsable) {
+        if (parsable.apply(sql)) {
+            return sql;
+        }
+        log.debug("{} not understood by h2, replaced by h2 statement: {}", name, sql);
+        substituted.add(name);
+        return h2Sql;
+    }
+
+    /**
+     * whether the locking select of the dialect keeps another connection from updating the selected row until commit,
+     * run it before any instance starts, other sessions holding the probed row would fake a lock
+     */
+    static boolean lastIdLocksRow(IdGenDialect dialect, String jdbcUrl) {
+        try (
+            val conn = DriverManager.getConnection(jdbcUrl, "sa", "sa");
+            val other = DriverManager.getConnection(jdbcUrl, "sa", "sa")
+        ) {
+            conn.setAutoCommit(false);
+            try (val ps = conn.prepareStatement(dialect.getLastIdSql())) {
+                ps.setString(1, LOCK_PROBE_ENTITY);
+                ps.executeQuery().close();
+                return !updatable(other);
+            } finally {
+                conn.rollback();
+            }
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    private static boolean updatable(Connection other) throws SQLException {
+        try (val st = other.createStatement()) {
+            st.execute("set lock_timeout " + LOCK_PROBE_TIMEOUT_MILLIS);
+            st.executeUpdate("update " + H2IdTable.TABLE + " set prev_value = prev_value where entity_name = '" + LOCK_PROBE_ENTITY + "'");
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    List<String> substituted() {
+        return substituted;
+    }
+
+    @Override
+    public String getUpdateIdSql() {
+        return updateIdSql;
+    }
+
+    @Override
+    public String getLastIdSql() {
+        return lastIdSql;
+    }
+
+    @Override
+    public String getLastIdWithoutLockSql() {
+        return lastIdWithoutLockSql;
+    }
+
+    @Override
+    public String getCompareAndSetIdSql() {
+        return compareAndSetIdSql;
+    }
+
+    @Override
+    public String getInitIdValueSql() {
+        return initIdValueSql;
+    }
+
+    @Override
+    public String getTableLockSql() {
+        if (null == tableLockSql) {
+            throw new IllegalStateException("emulated dialect has no table lock");
+        }
+        return tableLockSql;
+    }
+
+    @Override
+    public boolean needUpgradeLockIfIdRecordNotExist() {
+        return needUpgradeLock;
+    }
+
+    @Override
+    public boolean supportsIncrementAndReturn() {
+        return supportsIncrementAndReturn;
+    }
+
+    @Override
+    public String getIncrementAndReturnSql() {
+        if (!supportsIncrementAndReturn) {
+            return IdGenDialect.super.getIncrementAndReturnSql();
+        }
+        return incrementAndReturnSql;
+    }
+}
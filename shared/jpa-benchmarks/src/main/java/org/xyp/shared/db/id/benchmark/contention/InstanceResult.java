@@ -0,0 +1,64 @@
+package org.xyp.shared.db.id.benchmark.contention;
+
+import lombok.val;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * what one generator instance observed, written to a file by forked instances
+ */
+record InstanceResult(
+    long reservations,
+    long errors,
+    long lockUpgrades,
+    long[] refillNanos,
+    long[] waitNanos,
+    Map<String, long[]> ids
+) {
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeLong(reservations);
+        out.writeLong(errors);
+        out.writeLong(lockUpgrades);
+        writeArray(out, refillNanos);
+        writeArray(out, waitNanos);
+        out.writeInt(ids.size());
+        for (val entry : ids.entrySet()) {
+            out.writeUTF(entry.getKey());
+            writeArray(out, entry.getValue());
+        }
+    }
+
+    static InstanceResult readFrom(DataInputStream in) throws IOException {
+        val reservations = in.readLong();
+        val errors = in.readLong();
+        val lockUpgrades = in.readLong();
+        val refillNanos = readArray(in);
+        val waitNanos = readArray(in);
+        val entityCount = in.readInt();
+        val ids = new LinkedHashMap<String, long[]>();
+        for (int i = 0; i < entityCount; i++) {
+            ids.put(in.readUTF(), readArray(in));
+        }
+        return new InstanceResult(reservations, errors, lockUpgrades, refillNanos, waitNanos, ids);
+    }
+
+    private static void writeArray(DataOutputStream out, long[] values) throws IOException {
+        out.writeInt(values.length);
+        for (long value : values) {
+            out.writeLong(value);
+        }
+    }
+
+    private static long[] readArray(DataInputStream in) throws IOException {
+        val values = new long[in.readInt()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = in.readLong();
+        }
+        return values;
+    }
+}
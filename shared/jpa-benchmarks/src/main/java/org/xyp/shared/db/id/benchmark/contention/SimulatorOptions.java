@@ -0,0 +1,98 @@
+package org.xyp.shared.db.id.benchmark.contention;
+
+import lombok.val;
+import org.xyp.shared.db.id.generator.table.config.AllocationMode;
+import org.xyp.shared.db.id.generator.table.dialect.DialectType;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * key=value arguments of {@link ContentionSimulator}, unknown keys are rejected<br/>
+ * mix is a list of idCount:weight, e.g. 1:80,10:15,100:5 means 80% single ids, 15% ten ids ...
+ */
+record SimulatorOptions(
+    int instances,
+    boolean fork,
+    int threads,
+    int durationSeconds,
+    DialectType dialect,
+    AllocationMode allocationMode,
+    int entities,
+    int fetchSize,
+    boolean asyncRefill,
+    int poolSize,
+    int port,
+    List<Allocation> mix,
+    List<String> rawArgs
+) {
+
+    record Allocation(int idCount, int weight) {
+        @Override
+        public String toString() {
+            return idCount + ":" + weight;
+        }
+    }
+
+    private static final Map<String, String> DEFAULTS = Map.ofEntries(
+        Map.entry("instances", "4"),
+        Map.entry("fork", "false"),
+        Map.entry("threads", "4"),
+        Map.entry("durationSeconds", "10"),
+        Map.entry("dialect", "H2"),
+        Map.entry("allocationMode", "PESSIMISTIC"),
+        Map.entry("entities", "3"),
+        Map.entry("fetchSize", "50"),
+        Map.entry("asyncRefill", "true"),
+        Map.entry("poolSize", "4"),
+        Map.entry("port", "0"),
+        Map.entry("mix", "1:80,10:15,100:5")
+    );
+
+    static SimulatorOptions parse(String[] args) {
+        val values = new HashMap<>(DEFAULTS);
+        val raw = new ArrayList<String>();
+        for (String arg : args) {
+            val kv = arg.split("=", 2);
+            if (kv.length != 2 || !DEFAULTS.containsKey(kv[0])) {
+                throw new IllegalArgumentException("unknown argument " + arg + ", known are " + DEFAULTS.keySet());
+            }
+            values.put(kv[0], kv[1]);
+            raw.add(arg);
+        }
+        val mix = new ArrayList<Allocation>();
+        for (String part : values.get("mix").split(",")) {
+            val countWeight = part.split(":");
+            mix.add(new Allocation(Integer.parseInt(countWeight[0].trim()), Integer.parseInt(countWeight[1].trim())));
+        }
+        return new SimulatorOptions(
+            Integer.parseInt(values.get("instances")),
+            Boolean.parseBoolean(values.get("fork")),
+            Integer.parseInt(values.get("threads")),
+            Integer.parseInt(values.get("durationSeconds")),
+            DialectType.valueOf(values.get("dialect").toUpperCase()),
+            AllocationMode.valueOf(values.get("allocationMode").toUpperCase()),
+            Integer.parseInt(values.get("entities")),
+            Integer.parseInt(values.get("fetchSize")),
+            Boolean.parseBoolean(values.get("asyncRefill")),
+            Integer.parseInt(values.get("poolSize")),
+            Integer.parseInt(values.get("port")),
+            List.copyOf(mix),
+            List.copyOf(raw)
+        );
+    }
+
+    int totalWeight() {
+        return mix.stream().mapToInt(Allocation::weight).sum();
+    }
+
+    String h2Mode() {
+        return switch (dialect) {
+            case POSTGRES -> ";MODE=PostgreSQL";
+            case MSSQL -> ";MODE=MSSQLServer";
+            case H2 -> "";
+        };
+    }
+}
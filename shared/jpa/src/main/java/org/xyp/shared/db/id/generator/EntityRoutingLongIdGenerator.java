@@ -0,0 +1,114 @@
+package org.xyp.shared.db.id.generator;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * routes each entity to its own generator, entities not routed go to the default one
+ */
+public class EntityRoutingLongIdGenerator implements LongIdGenerator {
+
+    private final LongIdGenerator defaultGenerator;
+    private final Map<String, LongIdGenerator> routes;
+
+    public EntityRoutingLongIdGenerator(LongIdGenerator defaultGenerator, Map<String, LongIdGenerator> routes) {
+        this.defaultGenerator = defaultGenerator;
+        this.routes = Map.copyOf(routes);
+    }
+
+    public LongIdGenerator route(String entityName) {
+        return routes.getOrDefault(entityName, defaultGenerator);
+    }
+
+    public LongIdGenerator defaultGenerator() {
+        return defaultGenerator;
+    }
+
+    @Override
+    public Long nextId(String entityName, JdbcConnectionAccessorFactory connectionFactory) {
+        return route(entityName).nextId(entityName, connectionFactory);
+    }
+
+    @Override
+    public List<Long> nextId(String entityName, int fetchSize, JdbcConnectionAccessorFactory connectionFactory) {
+        return route(entityName).nextId(entityName, fetchSize, connectionFactory);
+    }
+
+    @Override
+    public List<Long> nextId(
+        String entityName,
+        int fetchSize,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        return route(entityName).nextId(entityName, fetchSize, defaultStepSize, defaultFetchSize, connectionFactory);
+    }
+
+    @Override
+    public LongIdRange reserve(String entityName, int count, JdbcConnectionAccessorFactory connectionFactory) {
+        return route(entityName).reserve(entityName, count, connectionFactory);
+    }
+
+    @Override
+    public LongIdRange reserve(
+        String entityName,
+        int count,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        return route(entityName).reserve(entityName, count, defaultStepSize, defaultFetchSize, connectionFactory);
+    }
+
+    @Override
+    public long nextLongId(String entityName, JdbcConnectionAccessorFactory connectionFactory) {
+        return route(entityName).nextLongId(entityName, connectionFactory);
+    }
+
+    @Override
+    public long nextLongId(
+        String entityName,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        return route(entityName).nextLongId(entityName, defaultStepSize, defaultFetchSize, connectionFactory);
+    }
+
+    @Override
+    public Map<String, LongIdRange> reserveAll(Map<String, Integer> counts, JdbcConnectionAccessorFactory connectionFactory) {
+        final Map<LongIdGenerator, Map<String, Integer>> byGenerator = splitByGenerator(counts);
+        final Map<String, LongIdRange> reserved = new LinkedHashMap<>();
+        byGenerator.forEach((generator, subCounts) -> reserved.putAll(generator.reserveAll(subCounts, connectionFactory)));
+        return inOrderOf(counts, reserved);
+    }
+
+    @Override
+    public Map<String, LongIdRange> reserveAll(
+        Map<String, Integer> counts,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        final Map<LongIdGenerator, Map<String, Integer>> byGenerator = splitByGenerator(counts);
+        final Map<String, LongIdRange> reserved = new LinkedHashMap<>();
+        byGenerator.forEach((generator, subCounts) ->
+            reserved.putAll(generator.reserveAll(subCounts, defaultStepSize, defaultFetchSize, connectionFactory)));
+        return inOrderOf(counts, reserved);
+    }
+
+    private Map<LongIdGenerator, Map<String, Integer>> splitByGenerator(Map<String, Integer> counts) {
+        final Map<LongIdGenerator, Map<String, Integer>> byGenerator = new LinkedHashMap<>();
+        counts.forEach((entityName, count) ->
+            byGenerator.computeIfAbsent(route(entityName), g -> new LinkedHashMap<>()).put(entityName, count));
+        return byGenerator;
+    }
+
+    private static Map<String, LongIdRange> inOrderOf(Map<String, Integer> counts, Map<String, LongIdRange> reserved) {
+        final Map<String, LongIdRange> ordered = new LinkedHashMap<>();
+        counts.keySet().forEach(entityName -> ordered.put(entityName, reserved.get(entityName)));
+        return ordered;
+    }
+}
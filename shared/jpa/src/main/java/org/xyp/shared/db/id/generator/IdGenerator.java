@@ -1,6 +1,8 @@
 package org.xyp.shared.db.id.generator;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public interface IdGenerator<I> {
 
@@ -22,4 +24,17 @@ public interface IdGenerator<I> {
         int defaultFetchSize,
         JdbcConnectionAccessorFactory connectionFactory
     );
+
+    /**
+     * ids of several entities at once, key is entity name and value is how many ids wanted<br/>
+     * implementations may refill all of them in one connection and transaction
+     */
+    default Map<String, List<I>> nextIds(
+        Map<String, Integer> fetchSizes,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        final Map<String, List<I>> ids = new LinkedHashMap<>();
+        fetchSizes.forEach((entityName, fetchSize) -> ids.put(entityName, nextId(entityName, fetchSize, connectionFactory)));
+        return ids;
+    }
 }
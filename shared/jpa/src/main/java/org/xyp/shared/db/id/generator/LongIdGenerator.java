@@ -0,0 +1,65 @@
+package org.xyp.shared.db.id.generator;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * primitive flavor of {@link IdGenerator} for long ids,<br/>
+ * reserved ids are exposed as {@link LongIdRange} so no Long is allocated per id
+ */
+public interface LongIdGenerator extends IdGenerator<Long> {
+
+    LongIdRange reserve(
+        String entityName,
+        int count,
+        JdbcConnectionAccessorFactory connectionFactory
+    );
+
+    LongIdRange reserve(
+        String entityName,
+        int count,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    );
+
+    default long nextLongId(
+        String entityName,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        return reserve(entityName, 1, connectionFactory).first();
+    }
+
+    default long nextLongId(
+        String entityName,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        return reserve(entityName, 1, defaultStepSize, defaultFetchSize, connectionFactory).first();
+    }
+
+    /**
+     * primitive flavor of {@link #nextIds(Map, JdbcConnectionAccessorFactory)}
+     */
+    default Map<String, LongIdRange> reserveAll(
+        Map<String, Integer> counts,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        final Map<String, LongIdRange> ranges = new LinkedHashMap<>();
+        counts.forEach((entityName, count) -> ranges.put(entityName, reserve(entityName, count, connectionFactory)));
+        return ranges;
+    }
+
+    default Map<String, LongIdRange> reserveAll(
+        Map<String, Integer> counts,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        final Map<String, LongIdRange> ranges = new LinkedHashMap<>();
+        counts.forEach((entityName, count) ->
+            ranges.put(entityName, reserve(entityName, count, defaultStepSize, defaultFetchSize, connectionFactory)));
+        return ranges;
+    }
+}
@@ -0,0 +1,137 @@
+package org.xyp.shared.db.id.generator;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+import java.util.function.LongConsumer;
+import java.util.stream.LongStream;
+
+/**
+ * reserved ids as (start, end, step) segments, ids are never boxed<br/>
+ * usually there are only one or two segments (pooled + newly fetched from db)
+ */
+public final class LongIdRange implements Iterable<Long> {
+
+    private static final Segment[] NO_SEGMENT = new Segment[0];
+    public static final LongIdRange EMPTY = new LongIdRange(NO_SEGMENT);
+
+    public record Segment(
+        long startInclude,
+        long endInclude,
+        int step
+    ) {
+        public long count() {
+            return endInclude < startInclude ? 0 : (endInclude - startInclude) / step + 1;
+        }
+    }
+
+    private final Segment[] segments;
+    private final long count;
+
+    private LongIdRange(Segment[] segments) {
+        this.segments = segments;
+        long c = 0;
+        for (Segment segment : segments) {
+            c += segment.count();
+        }
+        this.count = c;
+    }
+
+    /**
+     * the array is owned by the range afterward, don't modify it
+     */
+    public static LongIdRange of(Segment... segments) {
+        return segments.length == 0 ? EMPTY : new LongIdRange(segments);
+    }
+
+    public static LongIdRange single(long id) {
+        return new LongIdRange(new Segment[]{new Segment(id, id, 1)});
+    }
+
+    public int segmentCount() {
+        return segments.length;
+    }
+
+    public Segment segment(int index) {
+        return segments[index];
+    }
+
+    public long count() {
+        return count;
+    }
+
+    public boolean isEmpty() {
+        return count == 0;
+    }
+
+    public long first() {
+        if (count == 0) {
+            throw new NoSuchElementException("empty id range");
+        }
+        return segments[0].startInclude();
+    }
+
+    public void forEachId(LongConsumer consumer) {
+        for (Segment segment : segments) {
+            for (long i = segment.startInclude(); i <= segment.endInclude(); i += segment.step()) {
+                consumer.accept(i);
+            }
+        }
+    }
+
+    public long[] toArray() {
+        final long[] ids = new long[Math.toIntExact(count)];
+        int index = 0;
+        for (Segment segment : segments) {
+            for (long i = segment.startInclude(); i <= segment.endInclude(); i += segment.step()) {
+                ids[index++] = i;
+            }
+        }
+        return ids;
+    }
+
+    public LongStream stream() {
+        return Arrays.stream(segments)
+            .flatMapToLong(s -> LongStream.iterate(s.startInclude(), i -> i <= s.endInclude(), i -> i + s.step()));
+    }
+
+    @Override
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            int segmentIndex = 0;
+            long nextId = segments.length == 0 ? 0 : segments[0].startInclude();
+
+            @Override
+            public boolean hasNext() {
+                while (segmentIndex < segments.length) {
+                    if (nextId <= segments[segmentIndex].endInclude()) {
+                        return true;
+                    }
+                    segmentIndex++;
+                    if (segmentIndex < segments.length) {
+                        nextId = segments[segmentIndex].startInclude();
+                    }
+                }
+                return false;
+            }
+
+            @Override
+            public long nextLong() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                final long id = nextId;
+                nextId += segments[segmentIndex].step();
+                return id;
+            }
+        };
+    }
+
+    @Override
+    public String toString() {
+        return "LongIdRange{" +
+            "segments=" + Arrays.toString(segments) +
+            ", count=" + count +
+            '}';
+    }
+}
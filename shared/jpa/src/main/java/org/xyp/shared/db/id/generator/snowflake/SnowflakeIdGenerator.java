@@ -0,0 +1,174 @@
+package org.xyp.shared.db.id.generator.snowflake;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyp.shared.db.id.generator.JdbcConnectionAccessorFactory;
+import org.xyp.shared.db.id.generator.LongIdGenerator;
+import org.xyp.shared.db.id.generator.LongIdRange;
+import org.xyp.shared.db.id.generator.table.config.IdGenProperties;
+import org.xyp.shared.db.id.generator.table.exception.IdGenerationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.LongSupplier;
+
+/**
+ * 64 bits id : sign 0 | 41 bits millis since {@link IdGenProperties#getSnowflakeEpochMillis()}
+ * | 10 bits worker id | 12 bits sequence<br/>
+ * db is only touched by {@link WorkerIdLease}, never on generating ids<br/>
+ * millis and sequence are packed in one AtomicLong and moved forward by CAS,
+ * ids in the same millisecond are consecutive so a reserved range is one segment per millisecond<br/>
+ * sequence exhausted : waits for next millisecond<br/>
+ * clock moved backward : waits if within {@link IdGenProperties#getMaxClockBackwardMillis()}, fails otherwise<br/>
+ * ids are unique among entities, entity name and connection factory are ignored
+ */
+@Slf4j
+public class SnowflakeIdGenerator implements LongIdGenerator {
+
+    static final int WORKER_BITS = 10;
+    static final int SEQUENCE_BITS = 12;
+    static final long SEQUENCE_MASK = (1L << SEQUENCE_BITS) - 1;
+    private static final long WAIT_NANOS = 100_000;
+
+    private final WorkerIdLease lease;
+    private final LongSupplier clock;
+    private final long epochMillis;
+    private final long maxClockBackwardMillis;
+    /**
+     * millis since epoch << 12 | sequence of last generated id
+     */
+    private final AtomicLong lastTimeAndSequence = new AtomicLong();
+
+    public SnowflakeIdGenerator(IdGenProperties idGenProperties, WorkerIdLease lease, LongSupplier clock) {
+        this.lease = lease;
+        this.clock = clock;
+        this.epochMillis = idGenProperties.getSnowflakeEpochMillis();
+        this.maxClockBackwardMillis = idGenProperties.getMaxClockBackwardMillis();
+    }
+
+    public SnowflakeIdGenerator(IdGenProperties idGenProperties, WorkerIdLease lease) {
+        this(idGenProperties, lease, System::currentTimeMillis);
+    }
+
+    @Override
+    public Long nextId(String entityName, JdbcConnectionAccessorFactory connectionFactory) {
+        return nextLongId(entityName, connectionFactory);
+    }
+
+    @Override
+    public long nextLongId(String entityName, JdbcConnectionAccessorFactory connectionFactory) {
+        return take(entityName, 1).startInclude();
+    }
+
+    @Override
+    public long nextLongId(
+        String entityName,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        return nextLongId(entityName, connectionFactory);
+    }
+
+    @Override
+    public List<Long> nextId(String entityName, int fetchSize, JdbcConnectionAccessorFactory connectionFactory) {
+        final var range = reserve(entityName, fetchSize, connectionFactory);
+        final List<Long> ids = new ArrayList<>(Math.toIntExact(range.count()));
+        range.forEachId(ids::add);
+        return ids;
+    }
+
+    @Override
+    public List<Long> nextId(
+        String entityName,
+        int fetchSize,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        return nextId(entityName, fetchSize, connectionFactory);
+    }
+
+    @Override
+    public LongIdRange reserve(String entityName, int count, JdbcConnectionAccessorFactory connectionFactory) {
+        if (count <= 0) {
+            return LongIdRange.EMPTY;
+        }
+        final List<LongIdRange.Segment> segments = new ArrayList<>(1 + count / (int) (SEQUENCE_MASK + 1));
+        long remaining = count;
+        while (remaining > 0) {
+            final var segment = take(entityName, remaining);
+            segments.add(segment);
+            remaining -= segment.count();
+        }
+        return LongIdRange.of(segments.toArray(new LongIdRange.Segment[0]));
+    }
+
+    @Override
+    public LongIdRange reserve(
+        String entityName,
+        int count,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        return reserve(entityName, count, connectionFactory);
+    }
+
+    /**
+     * takes up to count consecutive ids of one millisecond
+     */
+    private LongIdRange.Segment take(String entityName, long count) {
+        while (true) {
+            final long last = lastTimeAndSequence.get();
+            final long lastMillis = last >>> SEQUENCE_BITS;
+            final long now = clock.getAsLong();
+            // the lease may drop its worker id while renewing, only the id validated here is used
+            final int workerId = lease.workerId();
+            if (WorkerIdLease.NO_WORKER == workerId || !lease.isValid(now)) {
+                throw new IdGenerationException(entityName, new IllegalStateException("worker id lease expired"));
+            }
+            final long nowMillis = now - epochMillis;
+
+            final long first;
+            if (nowMillis > lastMillis) {
+                first = nowMillis << SEQUENCE_BITS;
+            } else if (nowMillis < lastMillis) {
+                final long backward = lastMillis - nowMillis;
+                if (backward > maxClockBackwardMillis) {
+                    throw new IdGenerationException(
+                        entityName,
+                        new IllegalStateException("clock moved backwards by " + backward + " ms")
+                    );
+                }
+                log.debug("clock moved backwards by {} ms, wait", backward);
+                LockSupport.parkNanos(WAIT_NANOS);
+                continue;
+            } else if ((last & SEQUENCE_MASK) == SEQUENCE_MASK) {
+                // sequence exhausted in this millisecond
+                LockSupport.parkNanos(WAIT_NANOS);
+                continue;
+            } else {
+                first = last + 1;
+            }
+
+            final long available = SEQUENCE_MASK - (first & SEQUENCE_MASK) + 1;
+            final long end = first + Math.min(available, count) - 1;
+            if (lastTimeAndSequence.compareAndSet(last, end)) {
+                final long workerPart = (long) workerId << SEQUENCE_BITS;
+                return new LongIdRange.Segment(compose(first, workerPart), compose(end, workerPart), 1);
+            }
+        }
+    }
+
+    private static long compose(long timeAndSequence, long workerPart) {
+        return ((timeAndSequence >>> SEQUENCE_BITS) << (WORKER_BITS + SEQUENCE_BITS))
+            | workerPart
+            | (timeAndSequence & SEQUENCE_MASK);
+    }
+
+    public int workerId() {
+        return lease.workerId();
+    }
+}
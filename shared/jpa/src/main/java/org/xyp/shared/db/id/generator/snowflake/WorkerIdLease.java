@@ -0,0 +1,256 @@
+package org.xyp.shared.db.id.generator.snowflake;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.xyp.shared.db.id.generator.JdbcConnectionAccessorFactory;
+import org.xyp.shared.db.id.generator.table.config.IdGenProperties;
+import org.xyp.shared.db.id.generator.table.dialect.IdGenDialect;
+import org.xyp.shared.db.id.generator.table.exception.IdGenerationException;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * leases a worker id through the id table, no new table needed<br/>
+ * each worker id is one id record named {@link IdGenProperties#getWorkerLeasePrefix()} + worker id,
+ * its prev value is the lease expiry in epoch millis<br/>
+ * records are locked and written by the same select for update / update / insert sql of {@link IdGenDialect},
+ * the lease is renewed every third of {@link IdGenProperties#getWorkerLeaseMillis()}
+ */
+@Slf4j
+public class WorkerIdLease implements AutoCloseable {
+
+    public static final int MAX_WORKER_ID = (1 << SnowflakeIdGenerator.WORKER_BITS) - 1;
+    static final int NO_WORKER = -1;
+
+    private final IdGenDialect idGenDialect;
+    private final IdGenProperties idGenProperties;
+    private final JdbcConnectionAccessorFactory factory;
+    private final LongSupplier clock;
+    /**
+     * ReentrantLock instead of synchronized to not pin the virtual renewer thread during the db calls
+     */
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private volatile int workerId = NO_WORKER;
+    private volatile long expiresAt;
+    private ScheduledExecutorService renewer;
+
+    public WorkerIdLease(
+        IdGenDialect idGenDialect,
+        IdGenProperties idGenProperties,
+        JdbcConnectionAccessorFactory factory,
+        LongSupplier clock
+    ) {
+        this.idGenDialect = idGenDialect;
+        this.idGenProperties = idGenProperties;
+        this.factory = factory;
+        this.clock = clock;
+    }
+
+    public WorkerIdLease(
+        IdGenDialect idGenDialect,
+        IdGenProperties idGenProperties,
+        JdbcConnectionAccessorFactory factory
+    ) {
+        this(idGenDialect, idGenProperties, factory, System::currentTimeMillis);
+    }
+
+    /**
+     * leases a worker id and starts renewing it in background
+     */
+    public WorkerIdLease start() {
+        lock.lock();
+        try {
+            acquire();
+            val period = Math.max(1, idGenProperties.getWorkerLeaseMillis() / 3);
+            renewer = Executors.newSingleThreadScheduledExecutor(Thread.ofVirtual().name("worker-lease-", 0).factory());
+            renewer.scheduleAtFixedRate(this::renew, period, period, TimeUnit.MILLISECONDS);
+            return this;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int workerId() {
+        return workerId;
+    }
+
+    /**
+     * ids must not be generated once the lease is expired, another node may own the worker id then
+     */
+    public boolean isValid(long nowMillis) {
+        return NO_WORKER != workerId && nowMillis < expiresAt;
+    }
+
+    void acquire() {
+        lock.lock();
+        try {
+            val start = ThreadLocalRandom.current().nextInt(MAX_WORKER_ID + 1);
+            for (int i = 0; i <= MAX_WORKER_ID; i++) {
+                val candidate = (start + i) % (MAX_WORKER_ID + 1);
+                if (tryLease(candidate)) {
+                    workerId = candidate;
+                    log.info("leased worker id {}, expires at {}", candidate, expiresAt);
+                    return;
+                }
+            }
+            throw new IdGenerationException(idGenProperties.getWorkerLeasePrefix(), new IllegalStateException("no free worker id"));
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean tryLease(int candidate) {
+        val name = workerEntityName(candidate);
+        try (val conn = factory.open()) {
+            try {
+                begin(conn);
+                val now = clock.getAsLong();
+                val newExpiry = now + idGenProperties.getWorkerLeaseMillis();
+                val existingExpiry = selectExpiryForUpdate(name, conn);
+                if (null == existingExpiry) {
+                    insertExpiry(name, newExpiry, conn);
+                } else if (existingExpiry < now) {
+                    updateExpiry(name, newExpiry, conn);
+                } else {
+                    conn.rollback();
+                    return false;
+                }
+                conn.commit();
+                expiresAt = newExpiry;
+                return true;
+            } catch (SQLException e) {
+                // most likely another node inserted the same worker record at the same time
+                conn.rollback();
+                log.debug("lease worker id {} failed, {}", candidate, e.getMessage());
+                return false;
+            }
+        } catch (SQLException e) {
+            throw new IdGenerationException(name, e);
+        }
+    }
+
+    /**
+     * never throws, an exception would cancel the scheduled renewal for good
+     */
+    void renew() {
+        lock.lock();
+        try {
+            if (NO_WORKER != workerId && !extend()) {
+                log.warn("worker id {} was taken over, lease another one", workerId);
+                workerId = NO_WORKER;
+            }
+            if (NO_WORKER == workerId) {
+                acquire();
+            }
+        } catch (Exception e) {
+            log.warn("renew worker id {} failed, lease valid until {}", workerId, expiresAt, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return false if another node took the worker id over, its connection is closed by then
+     */
+    private boolean extend() throws SQLException {
+        val name = workerEntityName(workerId);
+        try (val conn = factory.open()) {
+            try {
+                begin(conn);
+                val existingExpiry = selectExpiryForUpdate(name, conn);
+                if (null == existingExpiry || existingExpiry != expiresAt) {
+                    conn.rollback();
+                    return false;
+                }
+                val newExpiry = clock.getAsLong() + idGenProperties.getWorkerLeaseMillis();
+                updateExpiry(name, newExpiry, conn);
+                conn.commit();
+                expiresAt = newExpiry;
+                log.debug("renewed worker id {} to {}", workerId, newExpiry);
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * stops renewing and expires the lease so the worker id is free at once
+     */
+    @Override
+    public void close() {
+        lock.lock();
+        try {
+            release();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+        if (null != renewer) {
+            renewer.shutdownNow();
+        }
+        if (NO_WORKER == workerId) {
+            return;
+        }
+        val name = workerEntityName(workerId);
+        try (val conn = factory.open()) {
+            begin(conn);
+            val existingExpiry = selectExpiryForUpdate(name, conn);
+            if (null != existingExpiry && existingExpiry == expiresAt) {
+                updateExpiry(name, 0, conn);
+            }
+            conn.commit();
+        } catch (Exception e) {
+            log.warn("release worker id {} failed, it expires at {}, {}", workerId, expiresAt, e.getMessage());
+        } finally {
+            workerId = NO_WORKER;
+        }
+    }
+
+    String workerEntityName(int candidate) {
+        return idGenProperties.getWorkerLeasePrefix() + candidate;
+    }
+
+    private void begin(Connection conn) throws SQLException {
+        conn.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+        conn.setAutoCommit(false);
+    }
+
+    private Long selectExpiryForUpdate(String name, Connection conn) throws SQLException {
+        try (val ps = conn.prepareStatement(idGenDialect.getLastIdSql())) {
+            ps.setString(1, name);
+            try (val resultSet = ps.executeQuery()) {
+                return resultSet.next() ? resultSet.getLong(1) : null;
+            }
+        }
+    }
+
+    private void updateExpiry(String name, long expiry, Connection conn) throws SQLException {
+        try (val ps = conn.prepareStatement(idGenDialect.getUpdateIdSql())) {
+            ps.setLong(1, expiry);
+            ps.setString(2, name);
+            ps.executeUpdate();
+        }
+    }
+
+    private void insertExpiry(String name, long expiry, Connection conn) throws SQLException {
+        try (val ps = conn.prepareStatement(idGenDialect.getInitIdValueSql())) {
+            ps.setString(1, name);
+            ps.setLong(2, expiry);
+            ps.setInt(3, 1);
+            ps.setLong(4, 1);
+            ps.executeUpdate();
+        }
+    }
+}
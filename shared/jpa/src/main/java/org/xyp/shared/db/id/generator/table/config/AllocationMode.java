@@ -0,0 +1,15 @@
+package org.xyp.shared.db.id.generator.table.config;
+
+/**
+ * how an id record is moved forward in id table
+ */
+public enum AllocationMode {
+    /**
+     * select ... for update then update, or single increment statement if dialect supports
+     */
+    PESSIMISTIC,
+    /**
+     * select without lock then compare-and-set update on prev value, retried with jittered backoff
+     */
+    OPTIMISTIC
+}
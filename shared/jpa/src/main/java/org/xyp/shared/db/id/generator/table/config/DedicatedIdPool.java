@@ -0,0 +1,95 @@
+package org.xyp.shared.db.id.generator.table.config;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.util.StringUtils;
+import org.xyp.shared.db.datasource.DataSourceProperties;
+
+import javax.sql.DataSource;
+import java.sql.SQLException;
+
+/**
+ * a small hikari pool only id refills use, named id-{config name}<br/>
+ * connection settings come from the datasource properties of the config, or are copied from the
+ * application datasource if it's hikari; pool size, timeouts and driver properties from {@link IdGenProperties}
+ */
+@Slf4j
+public final class DedicatedIdPool {
+
+    private DedicatedIdPool() {
+    }
+
+    public static HikariDataSource create(
+        String name,
+        IdGenProperties idGenProperties,
+        DataSourceProperties dataSourceProperties,
+        DataSource sharedDataSource
+    ) {
+        return create(name, idGenProperties, dataSourceProperties, sharedDataSource, null);
+    }
+
+    /**
+     * @param meterRegistry micrometer registry the pool reports hikaricp meters to, or null
+     * @return null if dedicated pool is not configured or connection settings are unknown
+     */
+    public static HikariDataSource create(
+        String name,
+        IdGenProperties idGenProperties,
+        DataSourceProperties dataSourceProperties,
+        DataSource sharedDataSource,
+        Object meterRegistry
+    ) {
+        if (idGenProperties.getDedicatedPoolSize() <= 0) {
+            return null;
+        }
+        val config = new HikariConfig();
+        if (null != dataSourceProperties && StringUtils.hasText(dataSourceProperties.getJdbcUrl())) {
+            config.setJdbcUrl(dataSourceProperties.getJdbcUrl());
+            config.setUsername(dataSourceProperties.getUsername());
+            config.setPassword(dataSourceProperties.getPassword());
+            if (StringUtils.hasText(dataSourceProperties.getDriverClassName())) {
+                config.setDriverClassName(dataSourceProperties.getDriverClassName());
+            }
+        } else if (!copyFromHikari(sharedDataSource, config)) {
+            log.warn("no connection settings for dedicated id pool of {}, id refills share the application datasource", name);
+            return null;
+        }
+        config.setPoolName("id-" + name);
+        config.setMaximumPoolSize(idGenProperties.getDedicatedPoolSize());
+        config.setMinimumIdle(1);
+        config.setConnectionTimeout(idGenProperties.getDedicatedPoolConnectionTimeoutMillis());
+        config.setMaxLifetime(idGenProperties.getDedicatedPoolMaxLifetimeMillis());
+        config.setAutoCommit(true);
+        config.setRegisterMbeans(true);
+        if (null != meterRegistry) {
+            config.setMetricRegistry(meterRegistry);
+        }
+        idGenProperties.getDedicatedPoolDataSourceProperties().forEach(config::addDataSourceProperty);
+        log.info("dedicated id pool {} of size {}", config.getPoolName(), config.getMaximumPoolSize());
+        return new HikariDataSource(config);
+    }
+
+    private static boolean copyFromHikari(DataSource dataSource, HikariConfig config) {
+        try {
+            if (null == dataSource || !dataSource.isWrapperFor(HikariDataSource.class)) {
+                return false;
+            }
+            val hikari = dataSource.unwrap(HikariDataSource.class);
+            config.setJdbcUrl(hikari.getJdbcUrl());
+            config.setUsername(hikari.getUsername());
+            config.setPassword(hikari.getPassword());
+            config.setDataSourceClassName(hikari.getDataSourceClassName());
+            if (null != hikari.getDriverClassName()) {
+                config.setDriverClassName(hikari.getDriverClassName());
+            }
+            config.setConnectionTestQuery(hikari.getConnectionTestQuery());
+            config.setSchema(hikari.getSchema());
+            hikari.getDataSourceProperties().forEach(config.getDataSourceProperties()::put);
+            return true;
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+}
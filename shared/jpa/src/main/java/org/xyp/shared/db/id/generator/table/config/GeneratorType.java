@@ -0,0 +1,19 @@
+package org.xyp.shared.db.id.generator.table.config;
+
+/**
+ * which generator serves an entity, see {@link IdGenProperties#getEntityGenerators()}
+ */
+public enum GeneratorType {
+    /**
+     * segments fetched from id table
+     */
+    TABLE,
+    /**
+     * timestamp | worker | sequence, id table is only used to lease the worker id
+     */
+    SNOWFLAKE,
+    /**
+     * interleaved residue classes over the id tables of {@link IdGenProperties#getShards()}
+     */
+    SHARDED
+}
@@ -5,6 +5,11 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.xyp.shared.db.id.generator.table.dialect.DialectType;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
 @Data
 @AllArgsConstructor
 @NoArgsConstructor
@@ -23,4 +28,89 @@ public class IdGenProperties {
      * <br/>refer to another datasource by name
      */
     String referTo;
+    /**
+     * <br/>refill next segment in background (virtual thread) before current segment is exhausted,
+     * <br/>so callers don't wait for the db round trip
+     */
+    boolean asyncRefill = true;
+    /**
+     * <br/>background refill starts when remaining ids in current segment
+     * <br/>drops to this ratio of the segment size
+     */
+    double segmentRefillWatermark = 0.2;
+    /**
+     * <br/>grow or shrink fetch size of each entity by its observed allocation rate,
+     * <br/>instead of the fixed fetch_size in id table
+     */
+    boolean adaptiveFetchSize = false;
+    int minFetchSize = 10;
+    int maxFetchSize = 10_000;
+    /**
+     * <br/>adaptive fetch size aims at about one db refill per this interval per node
+     */
+    long targetRefillIntervalMillis = 5_000;
+    /**
+     * <br/>PESSIMISTIC locks the id record while moving it forward,
+     * <br/>OPTIMISTIC never holds a lock across round trips, conflicts are retried
+     */
+    AllocationMode allocationMode = AllocationMode.PESSIMISTIC;
+    /**
+     * <br/>optimistic mode falls back to pessimistic lock after this many conflicts in a row
+     */
+    int optimisticMaxRetries = 10;
+    /**
+     * <br/>optimistic retry sleeps a random time up to backoff * 2^retry, capped by max backoff
+     */
+    long optimisticBackoffMillis = 2;
+    long optimisticMaxBackoffMillis = 100;
+    /**
+     * <br/>entity names whose first segment is fetched in parallel on application ready,
+     * <br/>the application only accepts traffic after they are fetched
+     */
+    List<String> prewarmEntities = new ArrayList<>();
+    /**
+     * <br/>generator type per entity name, entities not listed use {@link GeneratorType#TABLE}
+     */
+    Map<String, GeneratorType> entityGenerators = new HashMap<>();
+    /**
+     * <br/>snowflake ids count millis from this epoch, never change it once ids are generated
+     */
+    long snowflakeEpochMillis = 1_704_067_200_000L;
+    /**
+     * <br/>snowflake generator waits if clock moved backward within this, fails beyond it
+     */
+    long maxClockBackwardMillis = 10;
+    /**
+     * <br/>worker id lease is written as id record named prefix + worker id in id table
+     */
+    String workerLeasePrefix = "snowflake_worker_";
+    long workerLeaseMillis = 60_000;
+    /**
+     * <br/>prev value of a newly created id record, ids start from initial value + step size
+     */
+    long initialValue = 0;
+    /**
+     * <br/>names of datasource configs serving {@link GeneratorType#SHARDED} entities, shard k hands out
+     * <br/>ids of k (mod shard count); change of shards needs new entity names or re-seeding id records
+     */
+    List<String> shards = new ArrayList<>();
+    /**
+     * <br/>a shard is skipped for shardRetryAfterMillis after it failed or answered slower than this
+     */
+    long shardSlowThresholdMillis = 200;
+    long shardRetryAfterMillis = 5_000;
+    /**
+     * <br/>size of a connection pool used by id refills only, 0 shares the application datasource,
+     * <br/>1 keeps a single long-lived connection
+     */
+    int dedicatedPoolSize = 0;
+    /**
+     * <br/>a refill fails after waiting this long for a connection of the dedicated pool
+     */
+    long dedicatedPoolConnectionTimeoutMillis = 1_000;
+    long dedicatedPoolMaxLifetimeMillis = 1_800_000;
+    /**
+     * <br/>driver properties of the dedicated pool, e.g. statement cache of the driver
+     */
+    Map<String, String> dedicatedPoolDataSourceProperties = new HashMap<>();
 }
@@ -1,6 +1,6 @@
 package org.xyp.shared.db.id.generator.table.config;
 
-import org.xyp.shared.db.id.generator.IdGenerator;
+import org.xyp.shared.db.id.generator.LongIdGenerator;
 import org.xyp.shared.db.id.generator.table.dialect.IdGenDialect;
 import org.xyp.shared.db.id.generator.table.dialect.IdGenDialectH2;
 import org.xyp.shared.db.id.generator.table.dialect.IdGenDialectMssql;
@@ -15,14 +15,14 @@ import java.util.function.Supplier;
 
 public abstract class TableIdGeneratorConfig {
 
-    protected static final AtomicReference<IdGenerator<Long>> fallbackIdGenerator = new AtomicReference<>();
+    protected static final AtomicReference<LongIdGenerator> fallbackIdGenerator = new AtomicReference<>();
     protected static final AtomicReference<DataSource> fallbackDatasource = new AtomicReference<>();
     protected static final ConcurrentMap<String, DataSource> datasourceMap = new ConcurrentHashMap<>();
-    protected static final ConcurrentMap<String, IdGenerator<Long>> longIdGeneratorMap = new ConcurrentHashMap<>();
+    protected static final ConcurrentMap<String, LongIdGenerator> longIdGeneratorMap = new ConcurrentHashMap<>();
 
     public static Function<String, DataSource> getDataSource;
-    public static Function<String, IdGenerator<Long>> getLongIdGenerator;
-    public static Supplier<IdGenerator<Long>> getDefaultIdGenerator;
+    public static Function<String, LongIdGenerator> getLongIdGenerator;
+    public static Supplier<LongIdGenerator> getDefaultIdGenerator;
 
     public IdGenDialect idGenDialect(IdGenProperties idGenProperties) {
         return switch (idGenProperties.getDialect()) {
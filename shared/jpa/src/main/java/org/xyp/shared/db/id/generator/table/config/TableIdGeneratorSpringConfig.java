@@ -1,22 +1,46 @@
 package org.xyp.shared.db.id.generator.table.config;
 
+import com.zaxxer.hikari.HikariDataSource;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
+import org.springframework.beans.BeanUtils;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.ContextClosedEvent;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.event.EventListener;
+import org.springframework.util.ClassUtils;
 import org.springframework.util.StringUtils;
+import org.xyp.shared.db.datasource.DataSourceAllConfig;
 import org.xyp.shared.db.datasource.DataSourcePropertiesGroup;
-import org.xyp.shared.db.id.generator.IdGenerator;
+import org.xyp.shared.db.id.generator.EntityRoutingLongIdGenerator;
+import org.xyp.shared.db.id.generator.LongIdGenerator;
+import org.xyp.shared.db.id.generator.snowflake.SnowflakeIdGenerator;
+import org.xyp.shared.db.id.generator.snowflake.WorkerIdLease;
 import org.xyp.shared.db.id.generator.table.impl.LongIdDbTableGenerator;
+import org.xyp.shared.db.id.generator.table.impl.ShardedLongIdGenerator;
+import org.xyp.shared.db.id.generator.table.metrics.IdGeneratorMeterBinder;
 
 import javax.sql.DataSource;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
 
 @Slf4j
 @Configuration
 public class TableIdGeneratorSpringConfig extends TableIdGeneratorConfig {
 
+    private final List<WorkerIdLease> workerLeases = new CopyOnWriteArrayList<>();
+    private final Map<String, HikariDataSource> dedicatedPools = new ConcurrentHashMap<>();
+    private final Map<String, LongIdDbTableGenerator> tableGenerators = new ConcurrentHashMap<>();
+    private Object meterRegistry;
+
+    private static final boolean MICROMETER_PRESENT = ClassUtils.isPresent(
+        "io.micrometer.core.instrument.MeterRegistry", TableIdGeneratorSpringConfig.class.getClassLoader());
+
     public TableIdGeneratorSpringConfig() {
         log.info("id generator config loaded ... ...");
     }
@@ -26,6 +50,7 @@ public class TableIdGeneratorSpringConfig extends TableIdGeneratorConfig {
         val applicationContext = event.getApplicationContext();
         val idGenPropGroup = applicationContext.getBean(DataSourcePropertiesGroup.class);
         val dataSourceMap = applicationContext.getBeansOfType(DataSource.class);
+        meterRegistry = MICROMETER_PRESENT ? IdGeneratorMeterBinder.meterRegistryOf(applicationContext) : null;
         if (dataSourceMap.size() == 1) {
             fallbackDatasource.set(dataSourceMap.values().iterator().next());
         }
@@ -35,7 +60,15 @@ public class TableIdGeneratorSpringConfig extends TableIdGeneratorConfig {
             if (StringUtils.hasText(value.getReferTo())) {
                 referToMap.put(key, value.getReferTo());
             } else {
-                val idGen = new LongIdDbTableGenerator(idGenDialect(value), value);
+                val dataSource = dataSourceMap.getOrDefault(key, fallbackDatasource.get());
+                val idGen = withEntityRoutes(
+                    key,
+                    tableIdGenerator(key, comb, dataSource),
+                    value,
+                    dataSource,
+                    idGenPropGroup,
+                    dataSourceMap
+                );
                 longIdGeneratorMap.put(
                     key, idGen);
                 if (value.fallback) {
@@ -56,6 +89,144 @@ public class TableIdGeneratorSpringConfig extends TableIdGeneratorConfig {
         TableIdGeneratorConfig.getDataSource = TableIdGeneratorSpringConfig::getDataSource;
         TableIdGeneratorConfig.getLongIdGenerator = TableIdGeneratorSpringConfig::getLongIdGenerator;
         TableIdGeneratorConfig.getDefaultIdGenerator = TableIdGeneratorSpringConfig::getDefaultIdGenerator;
+
+        if (null != meterRegistry) {
+            IdGeneratorMeterBinder.bind(meterRegistry, tableGenerators);
+        }
+        prewarm(idGenPropGroup);
+    }
+
+    private LongIdDbTableGenerator tableIdGenerator(String key, DataSourceAllConfig config, DataSource dataSource) {
+        val value = config.getIdGenerator();
+        val generator = new LongIdDbTableGenerator(idGenDialect(value), value);
+        val pool = dedicatedPool(key, config, dataSource);
+        if (null != pool) {
+            generator.setDedicatedConnectionFactory(pool::getConnection);
+        }
+        tableGenerators.put(key, generator);
+        return generator;
+    }
+
+    /**
+     * one dedicated pool per config, shared by its table generator and the shard over its datasource
+     *
+     * @return null if dedicated pool is not configured
+     */
+    private HikariDataSource dedicatedPool(String key, DataSourceAllConfig config, DataSource dataSource) {
+        return dedicatedPools.computeIfAbsent(key, name ->
+            DedicatedIdPool.create(name, config.getIdGenerator(), config.getProperties(), dataSource, meterRegistry));
+    }
+
+    /**
+     * entities configured as snowflake are served by one snowflake generator per config,
+     * its worker id is leased from the id table of the same datasource<br/>
+     * entities configured as sharded are served by one sharded generator per config, over the id tables of its shards
+     */
+    private LongIdGenerator withEntityRoutes(
+        String key,
+        LongIdDbTableGenerator tableIdGenerator,
+        IdGenProperties value,
+        DataSource dataSource,
+        DataSourcePropertiesGroup idGenPropGroup,
+        Map<String, DataSource> dataSourceMap
+    ) {
+        val snowflakeEntities = entitiesOf(value, GeneratorType.SNOWFLAKE);
+        val shardedEntities = entitiesOf(value, GeneratorType.SHARDED);
+        if (snowflakeEntities.isEmpty() && shardedEntities.isEmpty()) {
+            return tableIdGenerator;
+        }
+        val routes = new HashMap<String, LongIdGenerator>();
+        if (!snowflakeEntities.isEmpty()) {
+            val lease = new WorkerIdLease(idGenDialect(value), value, dataSource::getConnection).start();
+            workerLeases.add(lease);
+            val snowflake = new SnowflakeIdGenerator(value, lease);
+            snowflakeEntities.forEach(entityName -> routes.put(entityName, snowflake));
+            log.info("snowflake id generator with worker id {} for {}", lease.workerId(), snowflakeEntities);
+        }
+        if (!shardedEntities.isEmpty()) {
+            val sharded = shardedIdGenerator(key, value, idGenPropGroup, dataSourceMap);
+            shardedEntities.forEach(entityName -> routes.put(entityName, sharded));
+            log.info("sharded id generator over {} for {}", value.getShards(), shardedEntities);
+        }
+        return new EntityRoutingLongIdGenerator(tableIdGenerator, routes);
+    }
+
+    private static List<String> entitiesOf(IdGenProperties value, GeneratorType type) {
+        return value.getEntityGenerators().entrySet().stream()
+            .filter(e -> type == e.getValue())
+            .map(Map.Entry::getKey)
+            .toList();
+    }
+
+    /**
+     * the generator of a shard is published as config key/shard name, configs listing the same shard keep their own
+     */
+    private ShardedLongIdGenerator shardedIdGenerator(
+        String key,
+        IdGenProperties value,
+        DataSourcePropertiesGroup idGenPropGroup,
+        Map<String, DataSource> dataSourceMap
+    ) {
+        val shards = new ArrayList<ShardedLongIdGenerator.Shard>();
+        for (int i = 0; i < value.getShards().size(); i++) {
+            val shardName = value.getShards().get(i);
+            val shardConfig = idGenPropGroup.getConfigs().get(shardName);
+            val shardDataSource = dataSourceMap.get(shardName);
+            if (null == shardConfig || null == shardDataSource) {
+                throw new IllegalStateException("id shard " + shardName + " has no datasource config");
+            }
+            // shard k starts from k, with step size of shard count its ids are k (mod shard count)
+            val shardProperties = new IdGenProperties();
+            BeanUtils.copyProperties(shardConfig.getIdGenerator(), shardProperties);
+            shardProperties.setInitialValue(i);
+            val pool = dedicatedPool(shardName, shardConfig, shardDataSource);
+            val shardGenerator = new LongIdDbTableGenerator(idGenDialect(shardProperties), shardProperties);
+            tableGenerators.put(key + "/" + shardName, shardGenerator);
+            shards.add(new ShardedLongIdGenerator.Shard(
+                shardName,
+                shardGenerator,
+                null == pool ? shardDataSource::getConnection : pool::getConnection
+            ));
+        }
+        return new ShardedLongIdGenerator(shards, value);
+    }
+
+    @EventListener
+    public void handleContextClosed(ContextClosedEvent event) {
+        workerLeases.forEach(WorkerIdLease::close);
+        workerLeases.clear();
+        dedicatedPools.values().forEach(HikariDataSource::close);
+        dedicatedPools.clear();
+    }
+
+    /**
+     * ready event is published before readiness turns to accepting traffic,
+     * so blocking here holds the traffic until the first segments are fetched
+     */
+    private void prewarm(DataSourcePropertiesGroup idGenPropGroup) {
+        try (val executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            idGenPropGroup.getConfigs().forEach((key, comb) -> {
+                val entityNames = comb.getIdGenerator().getPrewarmEntities();
+                if (null == entityNames || entityNames.isEmpty()) {
+                    return;
+                }
+                val generator = getLongIdGenerator(key) instanceof EntityRoutingLongIdGenerator routing
+                    ? routing.defaultGenerator()
+                    : getLongIdGenerator(key);
+                if (!(generator instanceof LongIdDbTableGenerator idGen)) {
+                    return;
+                }
+                val dataSource = datasourceMap.getOrDefault(key, fallbackDatasource.get());
+                entityNames.forEach(entityName -> executor.execute(() -> {
+                    try {
+                        idGen.prewarm(entityName, dataSource::getConnection);
+                        log.info("id segment prewarmed for {} of {}", entityName, key);
+                    } catch (Exception e) {
+                        log.warn("prewarm id segment for {} of {} failed, {}", entityName, key, e.getMessage());
+                    }
+                }));
+            });
+        }
     }
 
     public static DataSource getDataSource(String dataSourceName) {
@@ -65,14 +236,14 @@ public class TableIdGeneratorSpringConfig extends TableIdGeneratorConfig {
         return fallbackDatasource.getAcquire();
     }
 
-    public static IdGenerator<Long> getLongIdGenerator(String dataSourceName) {
+    public static LongIdGenerator getLongIdGenerator(String dataSourceName) {
         if (StringUtils.hasText(dataSourceName)) {
             return longIdGeneratorMap.get(dataSourceName);
         }
         return getDefaultIdGenerator();
     }
 
-    public static IdGenerator<Long> getDefaultIdGenerator() {
+    public static LongIdGenerator getDefaultIdGenerator() {
         return fallbackIdGenerator.getAcquire();
     }
 
@@ -7,10 +7,36 @@ public interface IdGenDialect {
 
     String getLastIdSql();
 
+    /**
+     * same as {@link #getLastIdSql()} but without any lock, for optimistic allocation
+     */
+    String getLastIdWithoutLockSql();
+
+    /**
+     * params : (1) new prev value, (2) entity name, (3) expected prev value
+     */
+    String getCompareAndSetIdSql();
+
     String getInitIdValueSql();
 
     String getTableLockSql();
 
     boolean needUpgradeLockIfIdRecordNotExist();
 
+    /**
+     * whether {@link #getIncrementAndReturnSql()} is available,<br/>
+     * then an existing id record is moved forward by one single statement without select for update
+     */
+    default boolean supportsIncrementAndReturn() {
+        return false;
+    }
+
+    /**
+     * params : (1) id count to add, multiplied by step size in db, (2) entity name<br/>
+     * returns : prev value (after increment), step size, fetch size; no row if id record not exists
+     */
+    default String getIncrementAndReturnSql() {
+        throw new IllegalStateException(getClass().getName() + " not support increment and return");
+    }
+
 }
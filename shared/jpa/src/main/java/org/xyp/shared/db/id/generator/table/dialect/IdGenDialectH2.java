@@ -9,7 +9,10 @@ public class IdGenDialectH2 implements IdGenDialect {
 
     final String updateIdSql;
     final String lastIdSql;
+    final String lastIdWithoutLockSql;
+    final String compareAndSetIdSql;
     final String initIdValueSql;
+    final String incrementAndReturnSql;
     final String tableLockSql;
 
     public IdGenDialectH2(
@@ -37,6 +40,25 @@ public class IdGenDialectH2 implements IdGenDialect {
             + idGenProperties.getEntityNameColumn() + " = ? "
             + "for update ";
 
+        lastIdWithoutLockSql = "select "
+            + idGenProperties.getPrevValueColumn() + ", "
+            + idGenProperties.getStepSizeColumn() + ", "
+            + idGenProperties.getFetchSizeColumn() + " "
+            + "from "
+            + schemaPrefix
+            + idGenProperties.getTable() + " id_t "
+            + "where "
+            + idGenProperties.getEntityNameColumn() + " = ?";
+        compareAndSetIdSql = "update "
+            + schemaPrefix
+            + idGenProperties.getTable() + " "
+            + "set "
+            + idGenProperties.getPrevValueColumn() + " = ? "
+            + "where "
+            + idGenProperties.getEntityNameColumn() + " = ? "
+            + "and "
+            + idGenProperties.getPrevValueColumn() + " = ?";
+
         initIdValueSql = "insert into "
             + schemaPrefix + idGenProperties.getTable()
             + "("
@@ -46,6 +68,20 @@ public class IdGenDialectH2 implements IdGenDialect {
             + idGenProperties.getFetchSizeColumn() + ") "
             + "values (?, ?, ?, ?)";
 
+        incrementAndReturnSql = "select "
+            + idGenProperties.getPrevValueColumn() + ", "
+            + idGenProperties.getStepSizeColumn() + ", "
+            + idGenProperties.getFetchSizeColumn() + " "
+            + "from final table (update "
+            + schemaPrefix
+            + idGenProperties.getTable() + " "
+            + "set "
+            + idGenProperties.getPrevValueColumn() + " = "
+            + idGenProperties.getPrevValueColumn() + " + ? * "
+            + idGenProperties.getStepSizeColumn() + " "
+            + "where "
+            + idGenProperties.getEntityNameColumn() + " = ?)";
+
 //        tableLockSql = "UPDATE "
 //            + schemaPrefix + idGenProperties.getTable()
 //            + " set "
@@ -81,6 +117,16 @@ public class IdGenDialectH2 implements IdGenDialect {
         return lastIdSql;
     }
 
+    @Override
+    public String getLastIdWithoutLockSql() {
+        return lastIdWithoutLockSql;
+    }
+
+    @Override
+    public String getCompareAndSetIdSql() {
+        return compareAndSetIdSql;
+    }
+
     @Override
     public String getInitIdValueSql() {
         return initIdValueSql;
@@ -95,4 +141,14 @@ public class IdGenDialectH2 implements IdGenDialect {
     public String getTableLockSql() {
         return tableLockSql;
     }
+
+    @Override
+    public boolean supportsIncrementAndReturn() {
+        return true;
+    }
+
+    @Override
+    public String getIncrementAndReturnSql() {
+        return incrementAndReturnSql;
+    }
 }
@@ -9,7 +9,10 @@ public class IdGenDialectMssql implements IdGenDialect {
 
     final String updateIdSql;
     final String lastIdSql;
+    final String lastIdWithoutLockSql;
+    final String compareAndSetIdSql;
     final String initIdValueSql;
+    final String incrementAndReturnSql;
 
     public IdGenDialectMssql(
         IdGenProperties idGenProperties
@@ -36,6 +39,25 @@ public class IdGenDialectMssql implements IdGenDialect {
             + "where "
             + idGenProperties.getEntityNameColumn() + " = ? "
             ;
+        lastIdWithoutLockSql = "select "
+            + idGenProperties.getPrevValueColumn() + ", "
+            + idGenProperties.getStepSizeColumn() + ", "
+            + idGenProperties.getFetchSizeColumn() + " "
+            + "from "
+            + schemaPrefix
+            + idGenProperties.getTable() + " "
+            + "where "
+            + idGenProperties.getEntityNameColumn() + " = ?";
+        compareAndSetIdSql = "update "
+            + schemaPrefix
+            + idGenProperties.getTable() + " "
+            + "set "
+            + idGenProperties.getPrevValueColumn() + " = ? "
+            + "where "
+            + idGenProperties.getEntityNameColumn() + " = ? "
+            + "and "
+            + idGenProperties.getPrevValueColumn() + " = ?";
+
         initIdValueSql = "insert into "
             + schemaPrefix + idGenProperties.getTable()
             + "("
@@ -44,6 +66,20 @@ public class IdGenDialectMssql implements IdGenDialect {
             + idGenProperties.getStepSizeColumn() + " , "
             + idGenProperties.getFetchSizeColumn() + ") "
             + "values (?, ?, ?, ?)";
+
+        incrementAndReturnSql = "update "
+            + schemaPrefix
+            + idGenProperties.getTable() + " "
+            + "set "
+            + idGenProperties.getPrevValueColumn() + " = "
+            + idGenProperties.getPrevValueColumn() + " + ? * "
+            + idGenProperties.getStepSizeColumn() + " "
+            + "output "
+            + "inserted." + idGenProperties.getPrevValueColumn() + ", "
+            + "inserted." + idGenProperties.getStepSizeColumn() + ", "
+            + "inserted." + idGenProperties.getFetchSizeColumn() + " "
+            + "where "
+            + idGenProperties.getEntityNameColumn() + " = ?";
     }
 
     @Override
@@ -56,6 +92,16 @@ public class IdGenDialectMssql implements IdGenDialect {
         return lastIdSql;
     }
 
+    @Override
+    public String getLastIdWithoutLockSql() {
+        return lastIdWithoutLockSql;
+    }
+
+    @Override
+    public String getCompareAndSetIdSql() {
+        return compareAndSetIdSql;
+    }
+
     @Override
     public String getInitIdValueSql() {
         return initIdValueSql;
@@ -71,4 +117,13 @@ public class IdGenDialectMssql implements IdGenDialect {
         return false;
     }
 
+    @Override
+    public boolean supportsIncrementAndReturn() {
+        return true;
+    }
+
+    @Override
+    public String getIncrementAndReturnSql() {
+        return incrementAndReturnSql;
+    }
 }
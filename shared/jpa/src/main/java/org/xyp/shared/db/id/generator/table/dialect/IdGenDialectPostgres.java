@@ -9,7 +9,10 @@ public class IdGenDialectPostgres implements IdGenDialect {
 
     final String updateIdSql;
     final String lastIdSql;
+    final String lastIdWithoutLockSql;
+    final String compareAndSetIdSql;
     final String initIdValueSql;
+    final String incrementAndReturnSql;
     final String tableLockSql;
 
     public IdGenDialectPostgres(
@@ -37,6 +40,25 @@ public class IdGenDialectPostgres implements IdGenDialect {
             + idGenProperties.getEntityNameColumn() + " = ? "
             + "for update ";
 
+        lastIdWithoutLockSql = "select "
+            + idGenProperties.getPrevValueColumn() + ", "
+            + idGenProperties.getStepSizeColumn() + ", "
+            + idGenProperties.getFetchSizeColumn() + " "
+            + "from "
+            + schemaPrefix
+            + idGenProperties.getTable() + " id_t "
+            + "where "
+            + idGenProperties.getEntityNameColumn() + " = ?";
+        compareAndSetIdSql = "update "
+            + schemaPrefix
+            + idGenProperties.getTable() + " "
+            + "set "
+            + idGenProperties.getPrevValueColumn() + " = ? "
+            + "where "
+            + idGenProperties.getEntityNameColumn() + " = ? "
+            + "and "
+            + idGenProperties.getPrevValueColumn() + " = ?";
+
         initIdValueSql = "insert into "
             + schemaPrefix + idGenProperties.getTable()
             + "("
@@ -46,6 +68,20 @@ public class IdGenDialectPostgres implements IdGenDialect {
             + idGenProperties.getFetchSizeColumn() + ") "
             + "values (?, ?, ?, ?)";
 
+        incrementAndReturnSql = "update "
+            + schemaPrefix
+            + idGenProperties.getTable() + " "
+            + "set "
+            + idGenProperties.getPrevValueColumn() + " = "
+            + idGenProperties.getPrevValueColumn() + " + ? * "
+            + idGenProperties.getStepSizeColumn() + " "
+            + "where "
+            + idGenProperties.getEntityNameColumn() + " = ? "
+            + "returning "
+            + idGenProperties.getPrevValueColumn() + ", "
+            + idGenProperties.getStepSizeColumn() + ", "
+            + idGenProperties.getFetchSizeColumn();
+
         tableLockSql = "LOCK TABLE "
             + schemaPrefix + idGenProperties.getTable()
             + " IN EXCLUSIVE MODE";
@@ -61,6 +97,16 @@ public class IdGenDialectPostgres implements IdGenDialect {
         return lastIdSql;
     }
 
+    @Override
+    public String getLastIdWithoutLockSql() {
+        return lastIdWithoutLockSql;
+    }
+
+    @Override
+    public String getCompareAndSetIdSql() {
+        return compareAndSetIdSql;
+    }
+
     @Override
     public String getInitIdValueSql() {
         return initIdValueSql;
@@ -75,4 +121,14 @@ public class IdGenDialectPostgres implements IdGenDialect {
     public String getTableLockSql() {
         return tableLockSql;
     }
+
+    @Override
+    public boolean supportsIncrementAndReturn() {
+        return true;
+    }
+
+    @Override
+    public String getIncrementAndReturnSql() {
+        return incrementAndReturnSql;
+    }
 }
@@ -20,4 +20,9 @@ public @interface CustomizedTableIdGenerator {
     int defaultFetchSize() default 50;
 
     int defaultStepSize() default 1;
+
+    /**
+     * see {@link DefaultBeforeExecutionGeneratorImpl#maxPreallocation}
+     */
+    int maxPreallocation() default 10_000;
 }
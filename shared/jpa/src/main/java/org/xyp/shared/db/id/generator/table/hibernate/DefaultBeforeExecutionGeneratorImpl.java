@@ -1,16 +1,29 @@
 package org.xyp.shared.db.id.generator.table.hibernate;
 
+import lombok.AccessLevel;
 import lombok.Data;
+import lombok.EqualsAndHashCode;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.ToString;
 import lombok.val;
 import org.hibernate.engine.spi.SharedSessionContractImplementor;
 import org.hibernate.generator.BeforeExecutionGenerator;
 import org.hibernate.generator.EventType;
-import org.xyp.shared.function.wrapper.ResultOrError;
 import org.xyp.shared.db.id.generator.DatasourceConnectionHolderFactory;
+import org.xyp.shared.db.id.generator.JdbcConnectionAccessorFactory;
+import org.xyp.shared.db.id.generator.LongIdGenerator;
+import org.xyp.shared.db.id.generator.LongIdRange;
 import org.xyp.shared.db.id.generator.table.config.TableIdGeneratorConfig;
 import org.xyp.shared.db.id.generator.table.exception.IdGenerationException;
 
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
 import java.util.EnumSet;
+import java.util.function.IntFunction;
+import java.util.function.LongFunction;
 
 import static org.hibernate.generator.EventType.INSERT;
 
@@ -22,6 +35,30 @@ public class DefaultBeforeExecutionGeneratorImpl implements BeforeExecutionGener
     int defaultFetchSize = 50;
     int defaultStepSize = 1;
     Class<?> idClass;
+    /**
+     * with jdbc batching on, ids are reserved per session up to this many at once, see {@link SessionIdPreallocation}<br/>
+     * 1 or less turns it off
+     */
+    int maxPreallocation = 10_000;
+
+    /**
+     * generator, connection factory and id wrapper constructor, resolved on first insert<br/>
+     * (id generators are registered on application ready, after hibernate created this)
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    @ToString.Exclude
+    @EqualsAndHashCode.Exclude
+    private volatile Resolved resolved;
+
+    private record Resolved(
+        LongIdGenerator idGenerator,
+        JdbcConnectionAccessorFactory connectionFactory,
+        boolean withDefaults,
+        LongFunction<Object> idFactory,
+        IntFunction<LongIdRange> reserve
+    ) {
+    }
 
     public DefaultBeforeExecutionGeneratorImpl(
         String name,
@@ -53,30 +90,103 @@ public class DefaultBeforeExecutionGeneratorImpl implements BeforeExecutionGener
             return null;
         }
 
-        val idGenerator = TableIdGeneratorConfig.getLongIdGenerator.apply(this.datasource);
-        val dataSource = TableIdGeneratorConfig.getDataSource.apply(this.datasource);
-        val id = ResultOrError.on(() -> {
-                    if (0 < defaultFetchSize && 0 < defaultStepSize) {
-                        return idGenerator.nextId(
-                            name,
-                            1, defaultStepSize, defaultFetchSize,
-                            new DatasourceConnectionHolderFactory(dataSource)
-                        ).getFirst();
-                    } else {
-                        return idGenerator.nextId(name, new DatasourceConnectionHolderFactory(dataSource));
-                    }
-                })
-                .getOrSpecError(IdGenerationException.class, ee -> new IdGenerationException(name, ee));
+        val res = resolve();
+        val preallocation = 1 < maxPreallocation ? SessionIdPreallocation.of(session) : null;
+        final long id;
+        try {
+            if (null != preallocation) {
+                id = preallocation.nextId(name, maxPreallocation, res.reserve());
+            } else {
+                id = res.withDefaults()
+                    ? res.idGenerator().nextLongId(name, defaultStepSize, defaultFetchSize, res.connectionFactory())
+                    : res.idGenerator().nextLongId(name, res.connectionFactory());
+            }
+        } catch (IdGenerationException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            throw new IdGenerationException(name, e);
+        }
+        return res.idFactory().apply(id);
+    }
 
-        if (idClass.isAssignableFrom(Long.class)) {
-            return idClass.cast(id);
+    private Resolved resolve() {
+        val current = resolved;
+        if (null != current) {
+            return current;
+        }
+        synchronized (this) {
+            if (null != resolved) {
+                return resolved;
+            }
+            val idGenerator = TableIdGeneratorConfig.getLongIdGenerator.apply(this.datasource);
+            val dataSource = TableIdGeneratorConfig.getDataSource.apply(this.datasource);
+            if (null == idGenerator || null == dataSource) {
+                throw new IdGenerationException(name, new IllegalStateException(
+                    "no id generator or datasource registered for " + this.datasource));
+            }
+            val connectionFactory = new DatasourceConnectionHolderFactory(dataSource);
+            val withDefaults = 0 < defaultFetchSize && 0 < defaultStepSize;
+            final IntFunction<LongIdRange> reserve = withDefaults
+                ? count -> idGenerator.reserve(name, count, defaultStepSize, defaultFetchSize, connectionFactory)
+                : count -> idGenerator.reserve(name, count, connectionFactory);
+            val res = new Resolved(
+                idGenerator,
+                connectionFactory,
+                withDefaults,
+                idFactoryOf(idClass),
+                reserve
+            );
+            resolved = res;
+            return res;
+        }
+    }
+
+    /**
+     * Long ids are boxed only, wrapper ids (like a record of one Long) are created by a
+     * lambda spun over its (long) or (Long) constructor, so no reflection per id
+     */
+    private LongFunction<Object> idFactoryOf(Class<?> idClass) {
+        if (idClass.isAssignableFrom(Long.class) || long.class == idClass) {
+            return Long::valueOf;
+        }
+        val constructor = findConstructor(idClass);
+        try {
+            val site = LambdaMetafactory.metafactory(
+                MethodHandles.lookup(),
+                "apply",
+                MethodType.methodType(LongFunction.class),
+                MethodType.methodType(Object.class, long.class),
+                constructor,
+                MethodType.methodType(idClass, long.class)
+            );
+            @SuppressWarnings("unchecked")
+            val factory = (LongFunction<Object>) site.getTarget().invoke();
+            return factory;
+        } catch (Throwable e) {
+            // e.g. constructor not accessible from here, invoke the handle instead
+            val handle = constructor.asType(MethodType.methodType(Object.class, long.class));
+            return id -> {
+                try {
+                    return handle.invokeExact(id);
+                } catch (Throwable ee) {
+                    throw new IdGenerationException(name, ee);
+                }
+            };
+        }
+    }
+
+    private MethodHandle findConstructor(Class<?> idClass) {
+        val lookup = MethodHandles.lookup();
+        try {
+            return lookup.findConstructor(idClass, MethodType.methodType(void.class, long.class));
+        } catch (NoSuchMethodException | IllegalAccessException ignored) {
+            // fall through to the boxed constructor
+        }
+        try {
+            return lookup.findConstructor(idClass, MethodType.methodType(void.class, Long.class));
+        } catch (NoSuchMethodException | IllegalAccessException e) {
+            throw new IdGenerationException(name, e);
         }
-        return ResultOrError.on(() -> {
-                val constructor = idClass.getConstructor(id.getClass()); // Long.TYPE for long
-                return constructor.newInstance(id);
-            })
-            .getOrSpecError(IdGenerationException.class, ee -> new IdGenerationException(name, ee))
-            ;
     }
 
     @Override
@@ -25,6 +25,7 @@ public class HibernateIdTableGenerator
             ((Field) annotatedMember).getType()
         )
         ;
+        setMaxPreallocation(config.maxPreallocation());
         log.info("create HibernateIdTableGenerator for {}", config);
     }
 
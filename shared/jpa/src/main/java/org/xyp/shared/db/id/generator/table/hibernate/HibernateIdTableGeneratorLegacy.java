@@ -39,6 +39,7 @@ public class HibernateIdTableGeneratorLegacy
     public static final String KEY_DEFAULT_FETCH_SIZE = "DEFAULT_FETCH_SIZE";
     public static final String KEY_DEFAULT_STEP_SIZE = "DEFAULT_STEP_SIZE";
     public static final String KEY_DATASOURCE_NAME = "DATASOURCE_NAME";
+    public static final String KEY_MAX_PREALLOCATION = "MAX_PREALLOCATION";
 
     @Override
     public void configure(Type type, Properties params, ServiceRegistry serviceRegistry) throws MappingException {
@@ -50,6 +51,8 @@ public class HibernateIdTableGeneratorLegacy
             .ifPresent(this::setDefaultStepSize);
         Optional.ofNullable(params.getProperty(KEY_DATASOURCE_NAME))
             .ifPresent(this::setDatasource);
+        Optional.ofNullable(params.getProperty(KEY_MAX_PREALLOCATION)).map(Integer::valueOf)
+            .ifPresent(this::setMaxPreallocation);
         log.info(
             "config id generator for id class {}, default fetch size/step {} {}",
             idClass, defaultFetchSize, defaultStepSize
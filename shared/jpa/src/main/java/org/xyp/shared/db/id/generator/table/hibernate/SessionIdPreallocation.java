@@ -0,0 +1,111 @@
+package org.xyp.shared.db.id.generator.table.hibernate;
+
+import jakarta.persistence.EntityManager;
+import lombok.val;
+import org.hibernate.SessionEventListener;
+import org.hibernate.engine.spi.SessionImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.xyp.shared.db.id.generator.LongIdRange;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PrimitiveIterator;
+import java.util.function.IntFunction;
+
+/**
+ * ids reserved for one hibernate session when jdbc batching is on<br/>
+ * ids are assigned on persist, and inserts of a batch are only sent on flush, so the number of
+ * entities of a type persisted since the last flush predicts how many more will come:
+ * each reservation asks for that many ids (1, 1, 2, 4, ... up to the batch size), a 10k rows saveAll
+ * with batch size 100 takes about a hundred reservations per entity type instead of one pool access per row<br/>
+ * callers knowing the size upfront can {@link #expect(EntityManager, Class, int)} it<br/>
+ * a reservation is at most one jdbc batch, so a flush leaves less than a batch of ids unused,
+ * they are dropped when the session ends, which is the same gap as a restart leaves<br/>
+ * it is kept as a property of the session, and goes away with it
+ */
+public final class SessionIdPreallocation implements SessionEventListener {
+
+    private static final String PROPERTY = SessionIdPreallocation.class.getName();
+
+    private static final PrimitiveIterator.OfLong NO_ID = LongIdRange.EMPTY.iterator();
+
+    private final int batchSize;
+    private final Map<String, Reservation> reservations = new HashMap<>();
+
+    private static final class Reservation {
+        PrimitiveIterator.OfLong ids = NO_ID;
+        int persistedSinceFlush;
+        int expected;
+    }
+
+    private SessionIdPreallocation(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * null if the session doesn't batch inserts, there's nothing to gain from reserving ahead,
+     * also for stateless sessions, they insert at once
+     */
+    static SessionIdPreallocation of(SharedSessionContractImplementor session) {
+        if (!(session instanceof SessionImplementor sessionImplementor)) {
+            return null;
+        }
+        val batchSize = session.getConfiguredJdbcBatchSize();
+        if (null == batchSize || batchSize <= 1) {
+            return null;
+        }
+        if (sessionImplementor.getProperties().get(PROPERTY) instanceof SessionIdPreallocation existing) {
+            return existing;
+        }
+        val preallocation = new SessionIdPreallocation(batchSize);
+        sessionImplementor.setProperty(PROPERTY, preallocation);
+        session.getEventListenerManager().addListener(preallocation);
+        return preallocation;
+    }
+
+    /**
+     * hint that count entities of the class are about to be persisted in this session,
+     * the next reservation of its id generator covers them at once
+     */
+    public static void expect(EntityManager entityManager, Class<?> entityClass, int count) {
+        val implementor = entityManager.unwrap(SharedSessionContractImplementor.class);
+        val generator = implementor.getFactory().getMappingMetamodel()
+            .getEntityDescriptor(entityClass)
+            .getGenerator();
+        if (!(generator instanceof DefaultBeforeExecutionGeneratorImpl tableIdGenerator)) {
+            return;
+        }
+        val preallocation = of(implementor);
+        if (null == preallocation) {
+            return;
+        }
+        val reservation = preallocation.reservations.computeIfAbsent(tableIdGenerator.getName(), k -> new Reservation());
+        reservation.expected = Math.max(reservation.expected, count);
+    }
+
+    long nextId(String entityName, int maxPreallocation, IntFunction<LongIdRange> reserve) {
+        var reservation = reservations.get(entityName);
+        if (null == reservation) {
+            reservation = new Reservation();
+            reservations.put(entityName, reservation);
+        }
+        reservation.persistedSinceFlush++;
+        if (!reservation.ids.hasNext()) {
+            val count = Math.min(
+                Math.max(reservation.expected, reservation.persistedSinceFlush),
+                Math.min(maxPreallocation, batchSize)
+            );
+            reservation.expected = 0;
+            reservation.ids = reserve.apply(Math.max(count, 1)).iterator();
+        }
+        if (reservation.expected > 0) {
+            reservation.expected--;
+        }
+        return reservation.ids.nextLong();
+    }
+
+    @Override
+    public void flushEnd(int numberOfEntities, int numberOfCollections) {
+        reservations.values().forEach(r -> r.persistedSinceFlush = 0);
+    }
+}
@@ -0,0 +1,92 @@
+package org.xyp.shared.db.id.generator.table.impl;
+
+import org.xyp.shared.db.id.generator.LongIdRange;
+import org.xyp.shared.db.id.generator.table.model.BatchIdResult;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * one range of ids fetched from id table, from first to last (both include) with step<br/>
+ * ids are taken by a CAS on the cursor, no lock is held when taking
+ */
+final class IdSegment {
+
+    static final long NO_ID = Long.MIN_VALUE;
+
+    final long first;
+    final long last;
+    final int step;
+    final long fetchSize;
+
+    private final AtomicLong cursor;
+
+    IdSegment(long first, long last, int step, long fetchSize) {
+        this.first = first;
+        this.last = last;
+        this.step = step;
+        this.fetchSize = fetchSize;
+        this.cursor = new AtomicLong(first);
+    }
+
+    static IdSegment of(BatchIdResult result) {
+        return new IdSegment(
+            result.prev() + result.stepSize(),
+            result.max(),
+            result.stepSize(),
+            result.fetchSize()
+        );
+    }
+
+    /**
+     * @param count how many ids wanted
+     * @return taken ids, may be less than count, null if nothing left in this segment
+     */
+    LongIdRange.Segment take(long count) {
+        while (true) {
+            final long current = cursor.get();
+            if (current > last) {
+                return null;
+            }
+            final long available = (last - current) / step + 1;
+            final long taking = Math.min(available, count);
+            final long newCursor = current + taking * step;
+            if (cursor.compareAndSet(current, newCursor)) {
+                return new LongIdRange.Segment(current, newCursor - step, step);
+            }
+        }
+    }
+
+    /**
+     * @return next id, or {@link #NO_ID} if nothing left in this segment
+     */
+    long takeOne() {
+        while (true) {
+            final long current = cursor.get();
+            if (current > last) {
+                return NO_ID;
+            }
+            if (cursor.compareAndSet(current, current + step)) {
+                return current;
+            }
+        }
+    }
+
+    long remaining() {
+        final long current = cursor.get();
+        return current > last ? 0 : (last - current) / step + 1;
+    }
+
+    long size() {
+        return last < first ? 0 : (last - first) / step + 1;
+    }
+
+    @Override
+    public String toString() {
+        return "IdSegment{" +
+            "first=" + first +
+            ", last=" + last +
+            ", step=" + step +
+            ", cursor=" + cursor.get() +
+            '}';
+    }
+}
@@ -4,23 +4,41 @@ import lombok.Setter;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.xyp.shared.function.wrapper.ResultOrError;
-import org.xyp.shared.db.id.generator.IdGenerator;
+import org.xyp.shared.function.wrapper.StackCapture;
 import org.xyp.shared.db.id.generator.JdbcConnectionAccessorFactory;
+import org.xyp.shared.db.id.generator.LongIdGenerator;
+import org.xyp.shared.db.id.generator.LongIdRange;
+import org.xyp.shared.db.id.generator.table.config.AllocationMode;
 import org.xyp.shared.db.id.generator.table.dialect.IdGenDialect;
 import org.xyp.shared.db.id.generator.table.config.IdGenProperties;
 import org.xyp.shared.db.id.generator.table.model.BatchIdResult;
 import org.xyp.shared.db.id.generator.table.exception.IdGenerationException;
+import org.xyp.shared.db.id.generator.table.metrics.IdGeneratorMetrics;
 
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.function.BiConsumer;
 
+/**
+ * ids of each entity are held in double buffered segments, see {@link SegmentBuffer}<br/>
+ * taking ids from current segment is lock free, next segment is refilled in background<br/>
+ * when current segment drops below {@link IdGenProperties#getSegmentRefillWatermark()}
+ */
 @Slf4j
-public class LongIdDbTableGenerator implements IdGenerator<Long> {
+public class LongIdDbTableGenerator implements LongIdGenerator {
 
     final IdGenDialect idGenDialect;
     final IdGenProperties idGenProperties;
@@ -28,7 +46,10 @@ public class LongIdDbTableGenerator implements IdGenerator<Long> {
     public static final int DEFAULT_BATCH_SIZE = 50;
     public static final int DEFAULT_STEP_SIZE = 1;
 
-    private final ConcurrentHashMap<String, BatchIdResult> idHolder = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, SegmentBuffer> idHolder = new ConcurrentHashMap<>();
+    private final Executor refillExecutor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("id-refill-", 0).factory()
+    );
 
     public LongIdDbTableGenerator(
         IdGenDialect idGenDialect,
@@ -38,6 +59,15 @@ public class LongIdDbTableGenerator implements IdGenerator<Long> {
         this.idGenProperties = idGenProperties;
     }
 
+    /**
+     * when set, id records are read and moved with connections of it instead of the caller's,
+     * so refills don't compete with business queries for the application pool
+     */
+    @Setter
+    private JdbcConnectionAccessorFactory dedicatedConnectionFactory;
+
+    private IdGeneratorMetrics metrics = IdGeneratorMetrics.NOOP;
+
     @Setter
     private List<BiConsumer<String, BatchIdResult>> recordFetchedPeeks = new ArrayList<>();
     @Setter
@@ -47,14 +77,12 @@ public class LongIdDbTableGenerator implements IdGenerator<Long> {
 
     @Override
     public Long nextId(String entityName, JdbcConnectionAccessorFactory factory) {
-        return nextId(entityName, 1, factory).getFirst();
+        return nextLongId(entityName, factory);
     }
 
-    record StartEnd(
-        long startInclude,
-        long endInclude,
-        int step
-    ) {
+    @Override
+    public long nextLongId(String entityName, JdbcConnectionAccessorFactory factory) {
+        return nextLongId(entityName, DEFAULT_STEP_SIZE, DEFAULT_BATCH_SIZE, factory);
     }
 
     @Override
@@ -70,96 +98,411 @@ public class LongIdDbTableGenerator implements IdGenerator<Long> {
         int defaultFetchSize,
         JdbcConnectionAccessorFactory factory
     ) {
+        val range = reserve(entityName, fetchSize, defaultStepSize, defaultFetchSize, factory);
+        val idList = new ArrayList<Long>(Math.toIntExact(range.count()));
+        range.forEachId(idList::add);
+        log.debug("ids for {} : {}", entityName, idList);
+        return idList;
+    }
 
-        val listOfStartEnd = new ArrayList<StartEnd>();
-
-        idHolder.compute(entityName, (clz, state) -> {
+    @Override
+    public LongIdRange reserve(String entityName, int count, JdbcConnectionAccessorFactory factory) {
+        return reserve(entityName, count, DEFAULT_STEP_SIZE, DEFAULT_BATCH_SIZE, factory);
+    }
 
-            if (null == state) {
-                return getBatchIdResultForNonExistingInPool(entityName, fetchSize, defaultStepSize, defaultFetchSize, factory, listOfStartEnd);
-            } else {
-                val endStateValue = state.prev() + state.stepSize() * (long) fetchSize;
-                val gap = endStateValue - state.max();
-                val pooledIsEnough = gap <= 0;
-                val pooledMax = pooledIsEnough ? endStateValue : state.max();
+    @Override
+    public LongIdRange reserve(
+        String entityName,
+        int count,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory factory
+    ) {
+        if (count <= 0) {
+            return LongIdRange.EMPTY;
+        }
+        val segments = reserveSegments(entityName, count, defaultStepSize, defaultFetchSize, factory);
+        return LongIdRange.of(segments.toArray(new LongIdRange.Segment[0]));
+    }
 
-                val pooledFromTo = new StartEnd(
-                    state.prev() + state.stepSize(), pooledMax, state.stepSize()
-                );
-                listOfStartEnd.add(pooledFromTo);
-                log.debug("get batch id for entity {},  from to {}, step_size: {}", entityName, pooledFromTo, state.stepSize());
+    @Override
+    public long nextLongId(
+        String entityName,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory factory
+    ) {
+        val buffer = bufferOf(entityName, defaultStepSize, defaultFetchSize);
+        val current = buffer.current;
+        if (null != current) {
+            val id = current.takeOne();
+            if (IdSegment.NO_ID != id) {
+                buffer.recordAllocated(1);
+                scheduleRefillIfNeeded(buffer, factory);
+                return id;
+            }
+        }
+        return reserve(entityName, 1, defaultStepSize, defaultFetchSize, factory).first();
+    }
 
-                if (pooledIsEnough) {
-                    return state.withLast(pooledMax);
-                } else {
-                    return getBatchIdResultForPooledIdNotEnough(entityName, fetchSize, factory, state, pooledFromTo, listOfStartEnd);
-                }
+    /**
+     * fetches the first segment of entity if not yet, no id is taken
+     */
+    public void prewarm(String entityName, JdbcConnectionAccessorFactory factory) {
+        prewarm(entityName, DEFAULT_STEP_SIZE, DEFAULT_BATCH_SIZE, factory);
+    }
 
+    public void prewarm(
+        String entityName,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory factory
+    ) {
+        val buffer = bufferOf(entityName, defaultStepSize, defaultFetchSize);
+        buffer.lock.lock();
+        try {
+            val current = buffer.current;
+            if (null == current || current.remaining() == 0) {
+                buffer.current = fetchSegment(buffer, 1, factory);
             }
-        });
+        } finally {
+            buffer.lock.unlock();
+        }
+    }
 
-        val idList = new ArrayList<Long>();
-        for (val startEnd : listOfStartEnd) {
-            for (long i = startEnd.startInclude; i <= startEnd.endInclude(); i += startEnd.step()) {
-                idList.add(i);
-            }
+    /**
+     * entities already buffered are registered to the new metrics as well
+     */
+    public void setMetrics(IdGeneratorMetrics metrics) {
+        this.metrics = null == metrics ? IdGeneratorMetrics.NOOP : metrics;
+        idHolder.values().forEach(this::registerMetrics);
+    }
+
+    private void registerMetrics(SegmentBuffer buffer) {
+        metrics.entityRegistered(buffer.entityName, buffer::remaining);
+    }
+
+    private SegmentBuffer bufferOf(String entityName, int defaultStepSize, int defaultFetchSize) {
+        val buffer = idHolder.get(entityName);
+        if (null != buffer) {
+            return buffer;
         }
-        log.debug("ids for {} : {}", entityName, idList);
-        return idList
-            ;
+        val created = new SegmentBuffer(entityName, defaultStepSize, defaultFetchSize);
+        val existing = idHolder.putIfAbsent(entityName, created);
+        if (null != existing) {
+            return existing;
+        }
+        registerMetrics(created);
+        return created;
     }
 
-    private BatchIdResult getBatchIdResultForPooledIdNotEnough(
+    /**
+     * hot path only bumps the cursor of current segment without lock,
+     * lock is only taken when current segment is not enough
+     */
+    List<LongIdRange.Segment> reserveSegments(
         String entityName,
-        int fetchSize,
-        JdbcConnectionAccessorFactory factory,
-        BatchIdResult state,
-        StartEnd pooledFromTo,
-        ArrayList<StartEnd> listOfStartEnd
+        long fetchSize,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory factory
     ) {
-        val fetchedCount = (pooledFromTo.endInclude >= pooledFromTo.startInclude) ?
-            (pooledFromTo.endInclude - pooledFromTo.startInclude) / pooledFromTo.step + 1
-            : 0;
-        val needFromDbCount = fetchSize - fetchedCount;
-        try (val conn = factory.open()) {
-            val result = updateNextBatchOrCreateNewBatchInDb(entityName, needFromDbCount, state.stepSize(), state.fetchSize(), conn);
-            val newLast = result.prev() + result.stepSize() * needFromDbCount;
-            listOfStartEnd.add(new StartEnd(
-                result.prev() + result.stepSize(), newLast, result.stepSize()
-            ));
-            return result.withLast(newLast);
-        } catch (Exception e) {
-            throw new IdGenerationException(entityName, e);
+        val buffer = bufferOf(entityName, defaultStepSize, defaultFetchSize);
+        val listOfStartEnd = new ArrayList<LongIdRange.Segment>(2);
+
+        var remaining = takeFromCurrent(buffer, fetchSize, listOfStartEnd);
+        if (remaining > 0) {
+            takeWithLock(buffer, remaining, factory, listOfStartEnd);
         }
+        buffer.recordAllocated(fetchSize);
+        scheduleRefillIfNeeded(buffer, factory);
+        log.debug("get batch id for entity {}, from to {}", entityName, listOfStartEnd);
+        return listOfStartEnd;
     }
 
-    private BatchIdResult getBatchIdResultForNonExistingInPool(
-        String entityName,
-        int fetchSize,
+    @Override
+    public Map<String, LongIdRange> reserveAll(Map<String, Integer> counts, JdbcConnectionAccessorFactory factory) {
+        return reserveAll(counts, DEFAULT_STEP_SIZE, DEFAULT_BATCH_SIZE, factory);
+    }
+
+    @Override
+    public Map<String, List<Long>> nextIds(Map<String, Integer> fetchSizes, JdbcConnectionAccessorFactory factory) {
+        val ids = new LinkedHashMap<String, List<Long>>();
+        reserveAll(fetchSizes, factory).forEach((entityName, range) -> {
+            val idList = new ArrayList<Long>(Math.toIntExact(range.count()));
+            range.forEachId(idList::add);
+            ids.put(entityName, idList);
+        });
+        return ids;
+    }
+
+    /**
+     * entities whose buffered segments are not enough are refilled together in one connection,
+     * by the same allocation mode as a single entity<br/>
+     * buffers, and id records when they are locked, are locked in entity name order, so concurrent callers don't dead lock
+     */
+    @Override
+    public Map<String, LongIdRange> reserveAll(
+        Map<String, Integer> counts,
         int defaultStepSize,
         int defaultFetchSize,
+        JdbcConnectionAccessorFactory factory
+    ) {
+        val taken = new HashMap<String, List<LongIdRange.Segment>>();
+        val shortages = new TreeMap<String, Long>();
+        counts.forEach((entityName, count) -> {
+            if (count <= 0) {
+                return;
+            }
+            val buffer = bufferOf(entityName, defaultStepSize, defaultFetchSize);
+            val listOfStartEnd = new ArrayList<LongIdRange.Segment>(2);
+            val remaining = takeFromCurrent(buffer, count, listOfStartEnd);
+            taken.put(entityName, listOfStartEnd);
+            if (remaining > 0) {
+                shortages.put(entityName, remaining);
+            }
+        });
+        if (!shortages.isEmpty()) {
+            refillTogether(shortages, taken, factory);
+        }
+
+        val ranges = new LinkedHashMap<String, LongIdRange>();
+        counts.forEach((entityName, count) -> {
+            val listOfStartEnd = taken.get(entityName);
+            if (null == listOfStartEnd) {
+                ranges.put(entityName, LongIdRange.EMPTY);
+                return;
+            }
+            val buffer = idHolder.get(entityName);
+            buffer.recordAllocated(count);
+            scheduleRefillIfNeeded(buffer, factory);
+            ranges.put(entityName, LongIdRange.of(listOfStartEnd.toArray(new LongIdRange.Segment[0])));
+        });
+        log.debug("get batch ids for entities {}", ranges);
+        return ranges;
+    }
+
+    private void refillTogether(
+        SortedMap<String, Long> shortages,
+        Map<String, List<LongIdRange.Segment>> taken,
+        JdbcConnectionAccessorFactory factory
+    ) {
+        val startNanos = System.nanoTime();
+        val buffers = shortages.keySet().stream().map(idHolder::get).toList();
+        buffers.forEach(buffer -> buffer.lock.lock());
+        try {
+            // buffers may be refilled by others while waiting for the locks
+            val needFetch = new TreeMap<String, Long>();
+            for (val buffer : buffers) {
+                val listOfStartEnd = taken.get(buffer.entityName);
+                var remaining = takeBuffered(buffer, shortages.get(buffer.entityName), listOfStartEnd);
+                val pending = buffer.pendingRefill;
+                if (remaining > 0 && null != pending && !pending.isDone()) {
+                    log.debug("wait background refill for {}", buffer.entityName);
+                    pending.join();
+                    remaining = takeBuffered(buffer, remaining, listOfStartEnd);
+                }
+                if (remaining > 0) {
+                    needFetch.put(buffer.entityName, remaining);
+                }
+            }
+            if (needFetch.isEmpty()) {
+                return;
+            }
+            val fetched = fetchSegmentsTogether(needFetch, factory);
+            val waited = System.nanoTime() - startNanos;
+            needFetch.keySet().forEach(entityName -> metrics.waitedForRefill(entityName, waited));
+            needFetch.forEach((entityName, remaining) -> {
+                val buffer = idHolder.get(entityName);
+                val segment = fetched.get(entityName);
+                if (null != segment) {
+                    buffer.current = segment;
+                }
+                // id records not exist yet, or still conflicting, are refilled one by one
+                takeWithLock(buffer, remaining, factory, taken.get(entityName));
+            });
+        } finally {
+            buffers.reversed().forEach(buffer -> buffer.lock.unlock());
+        }
+    }
+
+    /**
+     * @return count still missing
+     */
+    private long takeFromCurrent(SegmentBuffer buffer, long needCount, List<LongIdRange.Segment> listOfStartEnd) {
+        val current = buffer.current;
+        if (null != current) {
+            val taken = current.take(needCount);
+            if (null != taken) {
+                listOfStartEnd.add(taken);
+                return needCount - taken.count();
+            }
+        }
+        return needCount;
+    }
+
+    /**
+     * takes from current then next segment without touching db, caller holds buffer lock
+     *
+     * @return count still missing
+     */
+    private long takeBuffered(SegmentBuffer buffer, long needCount, List<LongIdRange.Segment> listOfStartEnd) {
+        var remaining = needCount;
+        while (remaining > 0) {
+            val current = buffer.current;
+            val taken = null == current ? null : current.take(remaining);
+            if (null != taken) {
+                listOfStartEnd.add(taken);
+                remaining -= taken.count();
+                continue;
+            }
+
+            val next = buffer.next;
+            if (null == next) {
+                break;
+            }
+            log.debug("swap to next segment for {} {}", buffer.entityName, next);
+            buffer.current = next;
+            buffer.next = null;
+        }
+        return remaining;
+    }
+
+    private void takeWithLock(
+        SegmentBuffer buffer,
+        long needCount,
         JdbcConnectionAccessorFactory factory,
-        ArrayList<StartEnd> listOfStartEnd
+        List<LongIdRange.Segment> listOfStartEnd
     ) {
-        try (val conn = factory.open()) {
-            val result = updateNextBatchOrCreateNewBatchInDb(entityName, fetchSize, defaultStepSize, defaultFetchSize, conn);
-            val newLast = result.prev() + result.stepSize() * (long) fetchSize;
-            listOfStartEnd.add(new StartEnd(
-                result.prev() + result.stepSize(), newLast, result.stepSize()
-            ));
-            return result.withLast(newLast);
+        var remaining = needCount;
+        val startNanos = System.nanoTime();
+        buffer.lock.lock();
+        try {
+            while (remaining > 0) {
+                remaining = takeBuffered(buffer, remaining, listOfStartEnd);
+                if (remaining <= 0) {
+                    break;
+                }
+
+                val pending = buffer.pendingRefill;
+                if (null != pending && !pending.isDone()) {
+                    log.debug("wait background refill for {}", buffer.entityName);
+                    pending.join();
+                    continue;
+                }
+
+                buffer.current = fetchSegment(buffer, remaining, factory);
+            }
+        } finally {
+            buffer.lock.unlock();
+            metrics.waitedForRefill(buffer.entityName, System.nanoTime() - startNanos);
+        }
+    }
+
+    private void scheduleRefillIfNeeded(SegmentBuffer buffer, JdbcConnectionAccessorFactory factory) {
+        if (!idGenProperties.isAsyncRefill() || null != buffer.next) {
+            return;
+        }
+        val current = buffer.current;
+        if (null == current || current.remaining() > refillWatermark(current)) {
+            return;
+        }
+        if (!buffer.refilling.compareAndSet(false, true)) {
+            return;
+        }
+        if (null != buffer.next) {
+            buffer.refilling.set(false);
+            return;
+        }
+        log.debug("schedule background refill for {}, current {}", buffer.entityName, current);
+        buffer.pendingRefill = CompletableFuture.runAsync(() -> refillInBackground(buffer, factory), refillExecutor);
+    }
+
+    private long refillWatermark(IdSegment segment) {
+        return (long) Math.ceil(segment.size() * idGenProperties.getSegmentRefillWatermark());
+    }
+
+    private void refillInBackground(SegmentBuffer buffer, JdbcConnectionAccessorFactory factory) {
+        try {
+            buffer.next = fetchSegment(buffer, 1, factory);
         } catch (Exception e) {
-            throw new IdGenerationException(entityName, e);
+            log.warn("background refill for {} failed, will fetch when needed", buffer.entityName, e);
+        } finally {
+            buffer.refilling.set(false);
+        }
+    }
+
+    private JdbcConnectionAccessorFactory connectionsOf(JdbcConnectionAccessorFactory factory) {
+        return null == dedicatedConnectionFactory ? factory : dedicatedConnectionFactory;
+    }
+
+    private IdSegment fetchSegment(SegmentBuffer buffer, long needCount, JdbcConnectionAccessorFactory factory) {
+        val startNanos = System.nanoTime();
+        try (val conn = connectionsOf(factory).open()) {
+            val result = updateNextBatchOrCreateNewBatchInDb(
+                buffer.entityName, needCount, buffer.stepSize, buffer.fetchSize, nextFetchSize(buffer), conn
+            );
+            val segment = IdSegment.of(result);
+            buffer.adopt(segment);
+            metrics.refilled(buffer.entityName, System.nanoTime() - startNanos);
+            log.debug("fetched segment for {} {}", buffer.entityName, segment);
+            return segment;
+        } catch (Exception e) {
+            metrics.failed(buffer.entityName);
+            throw new IdGenerationException(buffer.entityName, e);
         }
     }
 
+    /**
+     * @return segments of entities whose id record exists, others are absent
+     */
+    private Map<String, IdSegment> fetchSegmentsTogether(SortedMap<String, Long> needFetch, JdbcConnectionAccessorFactory factory) {
+        val entityNames = String.join(",", needFetch.keySet());
+        val startNanos = System.nanoTime();
+        try (val conn = connectionsOf(factory).open()) {
+            val segments = new HashMap<String, IdSegment>();
+            updateNextBatchesInDb(entityNames, needFetch, conn).forEach((entityName, result) -> {
+                val segment = IdSegment.of(result);
+                idHolder.get(entityName).adopt(segment);
+                segments.put(entityName, segment);
+            });
+            val elapsed = System.nanoTime() - startNanos;
+            segments.keySet().forEach(entityName -> metrics.refilled(entityName, elapsed));
+            log.debug("fetched segments together for {} {}", entityNames, segments);
+            return segments;
+        } catch (Exception e) {
+            needFetch.keySet().forEach(metrics::failed);
+            throw new IdGenerationException(entityNames, e);
+        }
+    }
+
+    /**
+     * with adaptive fetch size, block size follows observed allocation rate so that
+     * an entity is refilled about once per {@link IdGenProperties#getTargetRefillIntervalMillis()},
+     * bounded by min/max fetch size
+     */
+    private long nextFetchSize(SegmentBuffer buffer) {
+        if (!idGenProperties.isAdaptiveFetchSize()) {
+            return buffer.fetchSize;
+        }
+        val idsPerSecond = buffer.sampleVelocity(System.nanoTime());
+        if (idsPerSecond <= 0) {
+            return buffer.fetchSize;
+        }
+        val target = (long) Math.ceil(idsPerSecond * idGenProperties.getTargetRefillIntervalMillis() / 1000d);
+        val bounded = Math.max(idGenProperties.getMinFetchSize(), Math.min(idGenProperties.getMaxFetchSize(), target));
+        log.debug("adaptive fetch size for {}, {} ids/s, fetch size {}", buffer.entityName, idsPerSecond, bounded);
+        return bounded;
+    }
+
     /**
      * Only called when
      *
      * @param entityName       id name
      * @param needFetchSize    how many ids need to be fetched, this function will increase smallest number that can be divided by step_size * default_fetch_size
      * @param defaultStepSize  if entityName not exist in DB, use this as step size, otherwise use step_size stored in db
-     * @param defaultFetchSize if entityName not exist in DB, use this as fetch size, otherwise use fetch_size stored in db
+     * @param defaultFetchSize if entityName not exist in DB, stored as its fetch size
+     * @param blockSize        ids are fetched in whole blocks of it, the adaptive fetch size when enabled
      * @return BatchIdResult
      */
     private BatchIdResult updateNextBatchOrCreateNewBatchInDb(
@@ -167,19 +510,188 @@ public class LongIdDbTableGenerator implements IdGenerator<Long> {
         long needFetchSize,
         int defaultStepSize,
         long defaultFetchSize,
+        long blockSize,
         final Connection connection
     ) {
 
-        val req = new CalculateBatchFetchSizeReq(needFetchSize, defaultStepSize, defaultFetchSize);
+        val req = new CalculateBatchFetchSizeReq(needFetchSize, defaultStepSize, blockSize);
         val calculatedIdIncrease = calculateIdIncrease(req);
         log.debug("calculate fetch size for {}, result {}", req, calculatedIdIncrease);
 
+        if (AllocationMode.OPTIMISTIC == idGenProperties.getAllocationMode()) {
+            val swapped = compareAndSetWithRetry(entityName, calculateIdCount(req), connection);
+            if (null != swapped) {
+                return swapped;
+            }
+        } else if (idGenDialect.supportsIncrementAndReturn()) {
+            val incremented = incrementAndReturn(entityName, calculateIdCount(req), connection);
+            if (null != incremented) {
+                return incremented;
+            }
+            log.debug("{} not exists, fallback to select and init id record", entityName);
+        }
+
         return getBatchIdResultInTransaction(
             entityName, defaultStepSize, defaultFetchSize, connection, calculatedIdIncrease,
             false
         );
     }
 
+    /**
+     * optimistic or single statement mode moves each id record by its own statements, as for one entity,
+     * otherwise id records are locked in entity name order and moved forward by one batched update,
+     * all in one transaction<br/>
+     * ids are fetched in blocks of {@link #nextFetchSize}, the stored fetch_size unless adaptive;
+     * entities without id record, or still conflicting, are skipped
+     */
+    private Map<String, BatchIdResult> updateNextBatchesInDb(
+        String entityNames,
+        SortedMap<String, Long> needFetch,
+        Connection connection
+    ) {
+        val optimistic = AllocationMode.OPTIMISTIC == idGenProperties.getAllocationMode();
+        if (optimistic || idGenDialect.supportsIncrementAndReturn()) {
+            val results = new LinkedHashMap<String, BatchIdResult>();
+            needFetch.forEach((entityName, remaining) -> {
+                val buffer = idHolder.get(entityName);
+                val idCount = calculateIdCount(new CalculateBatchFetchSizeReq(remaining, buffer.stepSize, nextFetchSize(buffer)));
+                val result = optimistic
+                    ? compareAndSetWithRetry(entityName, idCount, connection)
+                    : incrementAndReturn(entityName, idCount, connection);
+                if (null != result) {
+                    results.put(entityName, result);
+                }
+            });
+            return results;
+        }
+        try {
+            connection.setTransactionIsolation(Connection.TRANSACTION_READ_COMMITTED);
+            connection.setAutoCommit(false);
+
+            val results = new LinkedHashMap<String, BatchIdResult>();
+            try (val ps = connection.prepareStatement(getUpdateIdSqlByDialect())) {
+                for (val entry : needFetch.entrySet()) {
+                    val entityName = entry.getKey();
+                    val existing = fetchIdBatchFromDB(entityName, connection);
+                    if (null == existing) {
+                        continue;
+                    }
+                    val req = new CalculateBatchFetchSizeReq(entry.getValue(), existing.stepSize(), nextFetchSize(idHolder.get(entityName)));
+                    val newMax = existing.prev() + calculateIdIncrease(req);
+                    ps.setLong(1, newMax);
+                    ps.setString(2, entityName);
+                    ps.addBatch();
+                    results.put(entityName, new BatchIdResult(entityName, existing.prev(), newMax, existing.stepSize(), existing.fetchSize()));
+                }
+                if (!results.isEmpty()) {
+                    log.debug("batch update id for entities {}", results.keySet());
+                    ps.executeBatch();
+                }
+            }
+            connection.commit();
+            results.forEach((entityName, res) -> recordUpdatedPeeks.forEach(c -> c.accept(entityName, res)));
+            return results;
+        } catch (SQLException e) {
+            ResultOrError.doRun(connection::rollback)
+                .getOrSpecError(IdGenerationException.class, ee -> new IdGenerationException(entityNames, ee));
+            throw new IdGenerationException(entityNames, e);
+        }
+    }
+
+    /**
+     * moves prev value forward by idCount * step_size in one statement,
+     * row lock is only held by that statement
+     *
+     * @return null if id record of entity not exists
+     */
+    private BatchIdResult incrementAndReturn(String entityName, long idCount, Connection connection) {
+        val incrementSql = idGenDialect.getIncrementAndReturnSql();
+        try {
+            connection.setAutoCommit(true);
+            try (val ps = connection.prepareStatement(incrementSql)) {
+                log.debug("increment id of entity {} {}", entityName, incrementSql);
+                ps.setLong(1, idCount);
+                ps.setString(2, entityName);
+                try (val resultSet = ps.executeQuery()) {
+                    if (!resultSet.next()) {
+                        return null;
+                    }
+                    val newMax = resultSet.getLong(1);
+                    val step = resultSet.getInt(2);
+                    val fetchSize = resultSet.getInt(3);
+                    val res = new BatchIdResult(entityName, newMax - idCount * step, newMax, step, fetchSize);
+                    recordUpdatedPeeks.forEach(c -> c.accept(entityName, res));
+                    return res;
+                }
+            }
+        } catch (SQLException e) {
+            throw new IdGenerationException(entityName, e);
+        }
+    }
+
+    /**
+     * reads id record without lock then updates it only if prev value is unchanged,
+     * each statement is auto committed so no lock is held across round trips<br/>
+     * every read fires {@link #recordFetchedPeeks}, every successful swap fires {@link #recordUpdatedPeeks},
+     * so conflicts are fetched count minus updated count
+     *
+     * @return null if id record of entity not exists, or still conflicting after max retries
+     */
+    private BatchIdResult compareAndSetWithRetry(String entityName, long idCount, Connection connection) {
+        try {
+            connection.setAutoCommit(true);
+            for (int retry = 0; retry <= idGenProperties.getOptimisticMaxRetries(); retry++) {
+                if (retry > 0) {
+                    backoff(entityName, retry);
+                }
+                val existing = fetchIdBatchFromDB(entityName, idGenDialect.getLastIdWithoutLockSql(), connection);
+                if (null == existing) {
+                    log.debug("{} not exists, fallback to select for update and init id record", entityName);
+                    return null;
+                }
+                val newMax = existing.prev() + idCount * existing.stepSize();
+                if (compareAndSetIdBatch(entityName, existing.prev(), newMax, connection)) {
+                    val res = new BatchIdResult(entityName, existing.prev(), newMax, existing.stepSize(), existing.fetchSize());
+                    recordUpdatedPeeks.forEach(c -> c.accept(entityName, res));
+                    log.debug("optimistic update of {} succeeded after {} retries", entityName, retry);
+                    return res;
+                }
+            }
+        } catch (SQLException e) {
+            throw new IdGenerationException(entityName, e);
+        }
+        log.warn("optimistic update of {} still conflicting after {} retries, fallback to pessimistic lock",
+            entityName, idGenProperties.getOptimisticMaxRetries());
+        return null;
+    }
+
+    private void backoff(String entityName, int retry) {
+        val ceiling = Math.min(
+            idGenProperties.getOptimisticMaxBackoffMillis(),
+            idGenProperties.getOptimisticBackoffMillis() << Math.min(retry, 20)
+        );
+        val sleepMillis = ThreadLocalRandom.current().nextLong(ceiling + 1);
+        try {
+            Thread.sleep(sleepMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IdGenerationException(entityName, e);
+        }
+    }
+
+    private boolean compareAndSetIdBatch(String entityName, long expectedPrev, long newPrev, Connection connection) {
+        val compareAndSetSql = idGenDialect.getCompareAndSetIdSql();
+        try (val ps = connection.prepareStatement(compareAndSetSql)) {
+            log.debug("compare and set id for entity {} {}", entityName, compareAndSetSql);
+            ps.setLong(1, newPrev);
+            ps.setString(2, entityName);
+            ps.setLong(3, expectedPrev);
+            return ps.executeUpdate() > 0;
+        } catch (SQLException e) {
+            throw new IdGenerationException(entityName, e);
+        }
+    }
+
     private BatchIdResult getBatchIdResultInTransaction(
         String entityName,
         int defaultStepSize,
@@ -202,6 +714,7 @@ public class LongIdDbTableGenerator implements IdGenerator<Long> {
                 && idGenDialect.needUpgradeLockIfIdRecordNotExist()
             ) {
                 log.debug("{} not exists, {} need upgrade to table lock", entityName, idGenDialect.getClass().getName());
+                metrics.lockUpgraded(entityName);
                 ResultOrError.doRun(connection::rollback)
                     .getOrSpecError(IdGenerationException.class, ee -> new IdGenerationException(entityName, ee));
                 return getBatchIdResultInTransaction(
@@ -210,7 +723,7 @@ public class LongIdDbTableGenerator implements IdGenerator<Long> {
                 );
             }
 
-            val retState = ResultOrError.on(() -> {
+            val retState = ResultOrError.withStackCapture(StackCapture.ON_ERROR).on(() -> {
                 if (null != existingResultInDb) {
                     val newMax = existingResultInDb.prev() + calculatedIdIncrease;
                     updateIdBatch(entityName, newMax, connection);
@@ -224,7 +737,13 @@ public class LongIdDbTableGenerator implements IdGenerator<Long> {
                     recordUpdatedPeeks.forEach(c -> c.accept(entityName, res));
                     return res;
                 } else {
-                    val newState = new BatchIdResult(entityName, 0, calculatedIdIncrease, defaultStepSize, defaultFetchSize);
+                    val newState = new BatchIdResult(
+                        entityName,
+                        idGenProperties.getInitialValue(),
+                        idGenProperties.getInitialValue() + calculatedIdIncrease,
+                        defaultStepSize,
+                        defaultFetchSize
+                    );
                     initIdValueToTable(entityName, newState, connection);
 
                     recordInitializedPeeks.forEach(c -> c.accept(entityName, newState));
@@ -257,18 +776,28 @@ public class LongIdDbTableGenerator implements IdGenerator<Long> {
 
     private long calculateIdIncrease(
         CalculateBatchFetchSizeReq req
+    ) {
+        return calculateIdCount(req) * req.defaultStepSize;
+    }
+
+    /**
+     * id count of whole fetch blocks covering needFetchCount
+     */
+    private long calculateIdCount(
+        CalculateBatchFetchSizeReq req
     ) {
         long needFetchCount = req.needFetchCount;
-        int defaultStepSize = req.defaultStepSize;
         long defaultFetchCount = req.defaultFetchCount;
-        val blockSizeInNumber = defaultFetchCount * defaultStepSize;
         val blockRemaining = needFetchCount % defaultFetchCount == 0 ? 0 : 1;
         val needBlock = blockRemaining + needFetchCount / defaultFetchCount;
-        return needBlock * blockSizeInNumber;
+        return needBlock * defaultFetchCount;
     }
 
     private BatchIdResult fetchIdBatchFromDB(String entityName, Connection connection) {
-        val getLastIdSql = getLastIdSqlByDialect();
+        return fetchIdBatchFromDB(entityName, getLastIdSqlByDialect(), connection);
+    }
+
+    private BatchIdResult fetchIdBatchFromDB(String entityName, String getLastIdSql, Connection connection) {
         try (val ps = connection.prepareStatement(getLastIdSql)) {
             log.debug("fetch next id of entity {} {}", entityName, getLastIdSql);
             ps.setString(1, entityName);
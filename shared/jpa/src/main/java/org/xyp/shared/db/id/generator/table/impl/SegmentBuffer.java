@@ -0,0 +1,83 @@
+package org.xyp.shared.db.id.generator.table.impl;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * double buffered segments of one entity<br/>
+ * current : the segment ids are taken from<br/>
+ * next : prepared by background refill, swapped to current once current is exhausted
+ */
+final class SegmentBuffer {
+
+    private static final double VELOCITY_SMOOTHING = 0.5;
+
+    final String entityName;
+    /**
+     * lock only for swapping segment or fetching synchronously,
+     * ReentrantLock instead of synchronized to not pin virtual thread
+     */
+    final ReentrantLock lock = new ReentrantLock();
+    final AtomicBoolean refilling = new AtomicBoolean(false);
+    final LongAdder allocated = new LongAdder();
+
+    volatile int stepSize;
+    volatile long fetchSize;
+    volatile IdSegment current;
+    volatile IdSegment next;
+    volatile CompletableFuture<?> pendingRefill;
+
+    private boolean sampled = false;
+    private long lastSampleNanos;
+    private double idsPerSecond;
+
+    SegmentBuffer(String entityName, int stepSize, long fetchSize) {
+        this.entityName = entityName;
+        this.stepSize = stepSize;
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * step size and fetch size stored in db win over the default ones
+     */
+    void adopt(IdSegment segment) {
+        this.stepSize = segment.step;
+        this.fetchSize = segment.fetchSize;
+    }
+
+    /**
+     * ids left in current and next segment
+     */
+    long remaining() {
+        final IdSegment c = current;
+        final IdSegment n = next;
+        return (null == c ? 0 : c.remaining()) + (null == n ? 0 : n.remaining());
+    }
+
+    void recordAllocated(long count) {
+        allocated.add(count);
+    }
+
+    /**
+     * ids allocated per second since last sample (last db fetch), smoothed by EWMA
+     *
+     * @return 0 if not sampled before
+     */
+    synchronized double sampleVelocity(long nowNanos) {
+        final long count = allocated.sumThenReset();
+        final long elapsed = nowNanos - lastSampleNanos;
+        final boolean firstSample = !sampled;
+        sampled = true;
+        lastSampleNanos = nowNanos;
+        if (firstSample || elapsed <= 0) {
+            return idsPerSecond;
+        }
+        final double rate = count * 1_000_000_000d / elapsed;
+        idsPerSecond = idsPerSecond == 0
+            ? rate
+            : VELOCITY_SMOOTHING * rate + (1 - VELOCITY_SMOOTHING) * idsPerSecond;
+        return idsPerSecond;
+    }
+}
@@ -0,0 +1,186 @@
+package org.xyp.shared.db.id.generator.table.impl;
+
+import lombok.extern.slf4j.Slf4j;
+import org.xyp.shared.db.id.generator.JdbcConnectionAccessorFactory;
+import org.xyp.shared.db.id.generator.LongIdGenerator;
+import org.xyp.shared.db.id.generator.LongIdRange;
+import org.xyp.shared.db.id.generator.table.config.IdGenProperties;
+import org.xyp.shared.db.id.generator.table.exception.IdGenerationException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * N id tables, one per datasource, shard k only hands out ids of residue class k (mod N),
+ * its id records start from {@link IdGenProperties#getInitialValue()} k with step size N<br/>
+ * each call goes to the next shard in round-robin, shards that failed or answered slower than
+ * {@link IdGenProperties#getShardSlowThresholdMillis()} are skipped for
+ * {@link IdGenProperties#getShardRetryAfterMillis()}<br/>
+ * every shard uses its own datasource, the connection factory passed in is ignored
+ */
+@Slf4j
+public class ShardedLongIdGenerator implements LongIdGenerator {
+
+    public record Shard(
+        String name,
+        LongIdDbTableGenerator generator,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+    }
+
+    private final List<ShardState> shards;
+    private final int stepSize;
+    private final long slowThresholdNanos;
+    private final long retryAfterNanos;
+    private final AtomicInteger roundRobin = new AtomicInteger();
+
+    public ShardedLongIdGenerator(List<Shard> shards, IdGenProperties idGenProperties) {
+        if (shards.isEmpty()) {
+            throw new IllegalArgumentException("no shard for sharded id generator");
+        }
+        this.shards = new ArrayList<>(shards.size());
+        for (int i = 0; i < shards.size(); i++) {
+            this.shards.add(new ShardState(i, shards.get(i)));
+        }
+        this.stepSize = shards.size();
+        this.slowThresholdNanos = idGenProperties.getShardSlowThresholdMillis() * 1_000_000;
+        this.retryAfterNanos = idGenProperties.getShardRetryAfterMillis() * 1_000_000;
+    }
+
+    private static final class ShardState {
+        final int index;
+        final Shard shard;
+        volatile long skipUntilNanos;
+
+        ShardState(int index, Shard shard) {
+            this.index = index;
+            this.shard = shard;
+        }
+    }
+
+    @Override
+    public Long nextId(String entityName, JdbcConnectionAccessorFactory connectionFactory) {
+        return nextLongId(entityName, connectionFactory);
+    }
+
+    @Override
+    public long nextLongId(String entityName, JdbcConnectionAccessorFactory connectionFactory) {
+        return nextLongId(entityName, stepSize, LongIdDbTableGenerator.DEFAULT_BATCH_SIZE, connectionFactory);
+    }
+
+    @Override
+    public long nextLongId(
+        String entityName,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        return reserve(entityName, 1, defaultStepSize, defaultFetchSize, connectionFactory).first();
+    }
+
+    @Override
+    public List<Long> nextId(String entityName, int fetchSize, JdbcConnectionAccessorFactory connectionFactory) {
+        return nextId(entityName, fetchSize, stepSize, LongIdDbTableGenerator.DEFAULT_BATCH_SIZE, connectionFactory);
+    }
+
+    @Override
+    public List<Long> nextId(
+        String entityName,
+        int fetchSize,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        final var range = reserve(entityName, fetchSize, defaultStepSize, defaultFetchSize, connectionFactory);
+        final List<Long> ids = new ArrayList<>(Math.toIntExact(range.count()));
+        range.forEachId(ids::add);
+        return ids;
+    }
+
+    @Override
+    public LongIdRange reserve(String entityName, int count, JdbcConnectionAccessorFactory connectionFactory) {
+        return reserve(entityName, count, stepSize, LongIdDbTableGenerator.DEFAULT_BATCH_SIZE, connectionFactory);
+    }
+
+    /**
+     * default step size is always the shard count, otherwise residue classes overlap
+     */
+    @Override
+    public LongIdRange reserve(
+        String entityName,
+        int count,
+        int defaultStepSize,
+        int defaultFetchSize,
+        JdbcConnectionAccessorFactory connectionFactory
+    ) {
+        if (count <= 0) {
+            return LongIdRange.EMPTY;
+        }
+        return onNextShard(entityName, state -> {
+            final var range = state.shard.generator()
+                .reserve(entityName, count, stepSize, defaultFetchSize, state.shard.connectionFactory());
+            checkResidue(entityName, state, range);
+            return range;
+        });
+    }
+
+    private <T> T onNextShard(String entityName, Function<ShardState, T> allocation) {
+        final int start = Math.floorMod(roundRobin.getAndIncrement(), shards.size());
+        final long now = System.nanoTime();
+        RuntimeException lastError = null;
+        // healthy shards first, then skipped ones as last resort
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < shards.size(); i++) {
+                final var state = shards.get((start + i) % shards.size());
+                final boolean skipped = now - state.skipUntilNanos < 0;
+                if (skipped != (pass == 1)) {
+                    continue;
+                }
+                final long begin = System.nanoTime();
+                try {
+                    final T result = allocation.apply(state);
+                    final long elapsed = System.nanoTime() - begin;
+                    if (elapsed > slowThresholdNanos) {
+                        log.warn("id shard {} is slow for {}, {} ms, skip it for a while",
+                            state.shard.name(), entityName, elapsed / 1_000_000);
+                        state.skipUntilNanos = System.nanoTime() + retryAfterNanos;
+                    } else if (skipped) {
+                        state.skipUntilNanos = System.nanoTime();
+                    }
+                    return result;
+                } catch (ShardMisconfiguredException e) {
+                    throw e;
+                } catch (RuntimeException e) {
+                    log.warn("id shard {} failed for {}, skip it for a while, {}", state.shard.name(), entityName, e.getMessage());
+                    state.skipUntilNanos = System.nanoTime() + retryAfterNanos;
+                    lastError = e;
+                }
+            }
+        }
+        throw new IdGenerationException(entityName, lastError);
+    }
+
+    private void checkResidue(String entityName, ShardState state, LongIdRange range) {
+        for (int i = 0; i < range.segmentCount(); i++) {
+            final var segment = range.segment(i);
+            if ((segment.count() > 1 && segment.step() != stepSize)
+                || Math.floorMod(segment.startInclude(), stepSize) != state.index) {
+                throw new ShardMisconfiguredException(entityName, new IllegalStateException(
+                    "id record of " + entityName + " in shard " + state.shard.name()
+                        + " is not residue " + state.index + " step " + stepSize + ", got " + segment
+                ));
+            }
+        }
+    }
+
+    /**
+     * not a shard health problem, failing over would hide it
+     */
+    static class ShardMisconfiguredException extends IdGenerationException {
+        ShardMisconfiguredException(String entityName, Throwable cause) {
+            super(entityName, cause);
+        }
+    }
+}
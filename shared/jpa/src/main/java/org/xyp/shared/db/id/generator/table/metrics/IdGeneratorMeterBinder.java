@@ -0,0 +1,30 @@
+package org.xyp.shared.db.id.generator.table.metrics;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.context.ApplicationContext;
+import org.xyp.shared.db.id.generator.table.impl.LongIdDbTableGenerator;
+
+import java.util.Map;
+
+/**
+ * only loaded when micrometer is on classpath, keeps micrometer an optional dependency
+ */
+public final class IdGeneratorMeterBinder {
+
+    private IdGeneratorMeterBinder() {
+    }
+
+    /**
+     * @return the meter registry bean, or null
+     */
+    public static Object meterRegistryOf(ApplicationContext applicationContext) {
+        return applicationContext.getBeanProvider(MeterRegistry.class).getIfAvailable();
+    }
+
+    public static void bind(Object meterRegistry, Map<String, LongIdDbTableGenerator> generators) {
+        if (!(meterRegistry instanceof MeterRegistry registry)) {
+            return;
+        }
+        generators.forEach((name, generator) -> generator.setMetrics(new MicrometerIdGeneratorMetrics(registry, name)));
+    }
+}
@@ -0,0 +1,40 @@
+package org.xyp.shared.db.id.generator.table.metrics;
+
+import java.util.function.LongSupplier;
+
+/**
+ * what {@link org.xyp.shared.db.id.generator.table.impl.LongIdDbTableGenerator} reports per entity,
+ * see {@link MicrometerIdGeneratorMetrics}
+ */
+public interface IdGeneratorMetrics {
+
+    IdGeneratorMetrics NOOP = new IdGeneratorMetrics() {
+    };
+
+    /**
+     * a buffer of entity is created, remaining tells how many ids are left in local segments
+     */
+    default void entityRegistered(String entityName, LongSupplier remaining) {
+    }
+
+    /**
+     * a segment is fetched from id table, including waiting for the connection
+     */
+    default void refilled(String entityName, long nanos) {
+    }
+
+    /**
+     * id record not exists and dialect has to lock the id table to create it
+     */
+    default void lockUpgraded(String entityName) {
+    }
+
+    /**
+     * a caller waited for this long because local segments were not enough
+     */
+    default void waitedForRefill(String entityName, long nanos) {
+    }
+
+    default void failed(String entityName) {
+    }
+}
@@ -0,0 +1,111 @@
+package org.xyp.shared.db.id.generator.table.metrics;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * meters tagged by generator (id generator config name) and entity:<br/>
+ * id.generator.refill : timer with histogram of segment fetches<br/>
+ * id.generator.refill.wait : timer of callers waiting for a refill<br/>
+ * id.generator.lock.upgrade : counter of table locks taken to create id records<br/>
+ * id.generator.errors : counter of failed fetches<br/>
+ * id.generator.remaining : gauge of ids left in local segments
+ */
+public class MicrometerIdGeneratorMetrics implements IdGeneratorMetrics {
+
+    public static final String REFILL = "id.generator.refill";
+    public static final String REFILL_WAIT = "id.generator.refill.wait";
+    public static final String LOCK_UPGRADE = "id.generator.lock.upgrade";
+    public static final String ERRORS = "id.generator.errors";
+    public static final String REMAINING = "id.generator.remaining";
+
+    private final MeterRegistry registry;
+    private final String generatorName;
+    private final Map<String, Meters> meters = new ConcurrentHashMap<>();
+
+    private record Meters(
+        Timer refill,
+        Timer refillWait,
+        Counter lockUpgrade,
+        Counter errors
+    ) {
+    }
+
+    public MicrometerIdGeneratorMetrics(MeterRegistry registry, String generatorName) {
+        this.registry = registry;
+        this.generatorName = generatorName;
+    }
+
+    private Meters metersOf(String entityName) {
+        final Meters existing = meters.get(entityName);
+        if (null != existing) {
+            return existing;
+        }
+        return meters.computeIfAbsent(entityName, this::createMeters);
+    }
+
+    private Meters createMeters(String entityName) {
+        final Tags tags = tags(entityName);
+        return new Meters(
+            Timer.builder(REFILL)
+                .description("segment fetches from id table")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry),
+            Timer.builder(REFILL_WAIT)
+                .description("time callers wait because local segments are not enough")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(registry),
+            Counter.builder(LOCK_UPGRADE)
+                .description("table locks taken to create id records")
+                .tags(tags)
+                .register(registry),
+            Counter.builder(ERRORS)
+                .description("failed segment fetches")
+                .tags(tags)
+                .register(registry)
+        );
+    }
+
+    private Tags tags(String entityName) {
+        return Tags.of("generator", generatorName, "entity", entityName);
+    }
+
+    @Override
+    public void entityRegistered(String entityName, LongSupplier remaining) {
+        Gauge.builder(REMAINING, remaining::getAsLong)
+            .description("ids left in local segments")
+            .tags(tags(entityName))
+            .strongReference(true)
+            .register(registry);
+    }
+
+    @Override
+    public void refilled(String entityName, long nanos) {
+        metersOf(entityName).refill().record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void lockUpgraded(String entityName) {
+        metersOf(entityName).lockUpgrade().increment();
+    }
+
+    @Override
+    public void waitedForRefill(String entityName, long nanos) {
+        metersOf(entityName).refillWait().record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void failed(String entityName) {
+        metersOf(entityName).errors().increment();
+    }
+}
@@ -14,6 +14,7 @@ import org.springframework.stereotype.Component;
 import org.xyp.shared.function.Fun;
 import org.xyp.shared.function.ValueHolder;
 import org.xyp.shared.function.wrapper.ResultOrError;
+import org.xyp.shared.function.wrapper.StackCapture;
 
 import java.util.Optional;
 
@@ -58,7 +59,7 @@ public class TraceAspect {
     private Object runWithAudit(ProceedingJoinPoint pjp, Trace txAnn) throws Throwable {
         val observation = createEventObservation(txAnn);
         ValueHolder<Throwable> varHandle = new ValueHolder<>(null);
-        val result = observation.observe(() -> ResultOrError.on(() -> {
+        val result = observation.observe(() -> ResultOrError.withStackCapture(StackCapture.ON_ERROR).on(() -> {
 
             val ctx = observation.getContext();
 
@@ -1,50 +1,85 @@
 package org.xyp.sample.spring.db.id.generator.jdbc;
 
 import lombok.extern.slf4j.Slf4j;
+import lombok.val;
 import org.springframework.boot.autoconfigure.orm.jpa.JpaProperties;
 import org.springframework.data.relational.core.mapping.event.BeforeConvertCallback;
 import org.springframework.stereotype.Service;
-import org.xyp.shared.function.Fun;
-import org.xyp.shared.function.wrapper.ResultOrError;
 import org.xyp.sample.spring.db.id.domain.HasId;
 import org.xyp.sample.spring.db.id.generator.DatasourceConnectionHolderFactory;
-import org.xyp.shared.db.id.generator.IdGenerator;
 import org.xyp.shared.db.id.generator.JdbcConnectionAccessorFactory;
+import org.xyp.shared.db.id.generator.LongIdGenerator;
 
 import javax.sql.DataSource;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PrimitiveIterator;
 
 @Slf4j
 @Service
 public class BeforeConvertCallbackForLong implements BeforeConvertCallback<HasId<Long>> {
 
-    final IdGenerator<Long> idGenerator;
+    final LongIdGenerator idGenerator;
     final DataSource dataSource;
     final JpaProperties jpaProperties;
+    final JdbcConnectionAccessorFactory connectionFactory;
 
     public BeforeConvertCallbackForLong(
-        IdGenerator<Long> idGenerator, DataSource dataSource, JpaProperties jpaProperties
+        LongIdGenerator idGenerator, DataSource dataSource, JpaProperties jpaProperties
     ) {
         this.idGenerator = idGenerator;
         this.dataSource = dataSource;
         this.jpaProperties = jpaProperties;
+        this.connectionFactory = new DatasourceConnectionHolderFactory(dataSource);
     }
 
     @Override
     public HasId<Long> onBeforeConvert(HasId<Long> aggregate) {
-        return setIds(aggregate, new DatasourceConnectionHolderFactory(dataSource));
+        assignIds(List.of(aggregate));
+        return aggregate;
     }
 
-    private HasId<Long> setIds(HasId<Long> aggregate, JdbcConnectionAccessorFactory factory) {
-        if (null == aggregate.peekId()) {
-            ResultOrError.on(() -> idGenerator.nextId(aggregate.identityGeneratorName(), factory))
-                .map(Fun.updateSelf(id -> log.info("set id for {} to {}", aggregate, id)))
-                .map(Fun.updateSelf(aggregate::putGeneratedId))
-                .get();
+    /**
+     * two passes over the aggregate trees: count missing ids per generator name,
+     * reserve each count in one call, then hand them out from the reserved ranges<br/>
+     * data-jdbc calls the callback per aggregate, so call this before saveAll to
+     * cover all aggregates with one reservation per generator name
+     */
+    public <A extends HasId<Long>> Collection<A> assignIds(Collection<A> aggregates) {
+        final Map<String, Integer> counts = new LinkedHashMap<>();
+        aggregates.forEach(aggregate -> countMissingIds(aggregate, counts));
+        if (counts.isEmpty()) {
+            return aggregates;
+        }
+        final Map<String, PrimitiveIterator.OfLong> ids = new HashMap<>();
+        idGenerator.reserveAll(counts, connectionFactory)
+            .forEach((name, range) -> ids.put(name, range.iterator()));
+        aggregates.forEach(aggregate -> putIds(aggregate, ids));
+        log.debug("assigned ids {} for {} aggregates", counts, aggregates.size());
+        return aggregates;
+    }
+
+    private static void countMissingIds(HasId<Long> node, Map<String, Integer> counts) {
+        if (null == node.peekId()) {
+            counts.merge(node.identityGeneratorName(), 1, Integer::sum);
+        }
+        val leaves = node.<HasId<Long>>leaves();
+        if (null != leaves) {
+            leaves.forEach(leaf -> countMissingIds(leaf, counts));
+        }
+    }
+
+    private static void putIds(HasId<Long> node, Map<String, PrimitiveIterator.OfLong> ids) {
+        if (null == node.peekId()) {
+            node.putGeneratedId(ids.get(node.identityGeneratorName()).nextLong());
+        }
+        val leaves = node.<HasId<Long>>leaves();
+        if (null != leaves) {
+            leaves.forEach(leaf -> putIds(leaf, ids));
         }
-        ResultOrError.on(aggregate::leaves)
-            .map(Fun.updateSelf(leaves -> leaves.forEach(lv -> setIds(lv, factory))))
-            .get();
-        return aggregate;
     }
 
 }
@@ -0,0 +1,43 @@
+package org.xyp.sample.spring.db.id.generator.jdbc;
+
+import lombok.extern.slf4j.Slf4j;
+import lombok.val;
+import org.springframework.data.relational.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Service;
+import org.xyp.sample.spring.db.id.domain.HasId;
+import org.xyp.shared.db.id.generator.uuid.UuidV7Generator;
+
+import java.util.UUID;
+
+/**
+ * UUID v7 ids for data-jdbc aggregates, generated in memory without db round trip
+ */
+@Slf4j
+@Service
+public class BeforeConvertCallbackForUuid implements BeforeConvertCallback<HasId<UUID>> {
+
+    final UuidV7Generator idGenerator;
+
+    public BeforeConvertCallbackForUuid() {
+        this(UuidV7Generator.INSTANCE);
+    }
+
+    public BeforeConvertCallbackForUuid(UuidV7Generator idGenerator) {
+        this.idGenerator = idGenerator;
+    }
+
+    @Override
+    public HasId<UUID> onBeforeConvert(HasId<UUID> aggregate) {
+        return setIds(aggregate);
+    }
+
+    private HasId<UUID> setIds(HasId<UUID> aggregate) {
+        if (null == aggregate.peekId()) {
+            val id = idGenerator.next();
+            log.debug("set id for {} to {}", aggregate, id);
+            aggregate.putGeneratedId(id);
+        }
+        aggregate.leaves().forEach(this::setIds);
+        return aggregate;
+    }
+}
@@ -0,0 +1,19 @@
+package org.xyp.shared.db.id.generator.uuid;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+/**
+ * id field of type UUID or String, generated by {@link UuidV7Generator#INSTANCE}
+ */
+@IdGeneratorType(HibernateUuidV7Generator.class)
+@Retention(RUNTIME)
+@Target({METHOD, FIELD})
+public @interface CustomizedUuidV7Generator {
+}
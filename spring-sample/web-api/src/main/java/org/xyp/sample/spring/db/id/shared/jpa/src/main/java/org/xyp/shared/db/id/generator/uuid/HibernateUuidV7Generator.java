@@ -0,0 +1,46 @@
+package org.xyp.shared.db.id.generator.uuid;
+
+import lombok.extern.slf4j.Slf4j;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.generator.BeforeExecutionGenerator;
+import org.hibernate.generator.EventType;
+import org.hibernate.id.factory.spi.CustomIdGeneratorCreationContext;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Member;
+import java.lang.reflect.Method;
+import java.util.EnumSet;
+
+import static org.hibernate.generator.EventType.INSERT;
+
+@Slf4j
+public class HibernateUuidV7Generator implements BeforeExecutionGenerator {
+
+    private final boolean asString;
+
+    public HibernateUuidV7Generator(
+        CustomizedUuidV7Generator config,
+        Member annotatedMember,
+        CustomIdGeneratorCreationContext ignored
+    ) {
+        final Class<?> idClass = annotatedMember instanceof Method method
+            ? method.getReturnType()
+            : ((Field) annotatedMember).getType();
+        this.asString = String.class.equals(idClass);
+        log.info("create HibernateUuidV7Generator for {}", annotatedMember);
+    }
+
+    @Override
+    public Object generate(SharedSessionContractImplementor session, Object owner, Object currentValue, EventType eventType) {
+        if (INSERT != eventType || null == owner) {
+            return null;
+        }
+        final var id = UuidV7Generator.INSTANCE.next();
+        return asString ? id.toString() : id;
+    }
+
+    @Override
+    public EnumSet<EventType> getEventTypes() {
+        return EnumSet.of(INSERT);
+    }
+}
@@ -1,19 +1,27 @@
 package org.xyp.sample.spring.webapi.test.jpa;
 
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.assertj.core.api.Assertions;
 import org.hibernate.LockMode;
 import org.hibernate.LockOptions;
 import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.generator.EventType;
 import org.hibernate.internal.util.StringHelper;
 import org.junit.jupiter.api.MethodOrderer;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
 import org.junit.jupiter.api.TestMethodOrder;
+import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.availability.AvailabilityChangeEvent;
+import org.springframework.boot.availability.ReadinessState;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.event.EventListener;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.test.annotation.Commit;
 import org.springframework.test.annotation.Rollback;
@@ -21,34 +29,72 @@ import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.context.jdbc.Sql;
 import org.springframework.test.context.jdbc.SqlConfig;
 import org.springframework.transaction.annotation.Transactional;
+import org.xyp.sample.spring.db.id.generator.jdbc.BeforeConvertCallbackForLong;
+import org.xyp.sample.spring.webapi.domain.task.entity.batch.Batch;
+import org.xyp.sample.spring.webapi.domain.task.entity.batch.BatchRule;
+import org.xyp.sample.spring.webapi.domain.task.entity.task.Task;
 import org.xyp.shared.db.datasource.DataSourcePropertiesGroup;
 import org.xyp.shared.function.wrapper.ResultOrError;
 import org.xyp.shared.db.id.generator.IdGenerator;
 import org.xyp.shared.db.id.generator.JdbcConnectionAccessorFactory;
+import org.xyp.shared.db.id.generator.LongIdRange;
+import org.xyp.shared.db.id.generator.snowflake.SnowflakeIdGenerator;
+import org.xyp.shared.db.id.generator.snowflake.WorkerIdLease;
+import org.xyp.shared.db.id.generator.table.config.AllocationMode;
+import org.xyp.shared.db.id.generator.table.config.DedicatedIdPool;
+import org.xyp.shared.db.id.generator.table.config.IdGenProperties;
 import org.xyp.shared.db.id.generator.table.config.TableIdGeneratorConfig;
+import org.xyp.shared.db.id.generator.table.dialect.IdGenDialectH2;
+import org.xyp.shared.db.id.generator.table.exception.IdGenerationException;
+import org.xyp.shared.db.id.generator.table.hibernate.DefaultBeforeExecutionGeneratorImpl;
+import org.xyp.shared.db.id.generator.table.metrics.MicrometerIdGeneratorMetrics;
 import org.xyp.shared.db.id.generator.table.model.BatchIdResult;
 import org.xyp.shared.db.id.generator.table.impl.LongIdDbTableGenerator;
+import org.xyp.shared.db.id.generator.table.impl.ShardedLongIdGenerator;
+import org.xyp.shared.db.id.generator.uuid.UuidV7Generator;
 
 
 import javax.sql.DataSource;
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
 import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static java.util.Collections.singletonMap;
 
 @Slf4j
 @TestInstance(TestInstance.Lifecycle.PER_CLASS)
 @TestMethodOrder(MethodOrderer.OrderAnnotation.class)
-@SpringBootTest
+@SpringBootTest(properties = {
+    "spring.sql.init.schema-locations=classpath:/sql/schema-h2.sql",
+    "org.xyp.shared.datasource.configs.main.id-generator.prewarm-entities=prewarm_app_id,prewarm_app_other_id",
+    // prewarm of an id table not exist fails alone
+    "org.xyp.shared.datasource.configs.broken.id-generator.schema=test",
+    "org.xyp.shared.datasource.configs.broken.id-generator.table=no_such_id_table",
+    "org.xyp.shared.datasource.configs.broken.id-generator.dialect=h2",
+    "org.xyp.shared.datasource.configs.broken.id-generator.prewarm-entities=prewarm_broken_id",
+})
 //@ActiveProfiles("postgres")
 @ActiveProfiles("test")
 @Sql(
@@ -73,6 +119,9 @@ class TestIdGenerator {
     @Autowired
     JdbcTemplate jdbcTemplate;
 
+    @Autowired
+    MeterRegistry meterRegistry;
+
     @Test
     void test1() {
         Assertions.assertThat(dataSource).isNotNull();
@@ -170,6 +219,508 @@ class TestIdGenerator {
         }
     }
 
+    @Test
+    void refillsNextSegmentInBackground() {
+        val generator = generator(p -> p.setAsyncRefill(true));
+        val refillThreads = new ConcurrentLinkedQueue<String>();
+        generator.setRecordUpdatedPeeks(List.of((e, b) -> refillThreads.add(Thread.currentThread().getName())));
+        generator.setRecordInitializedPeeks(List.of((e, b) -> refillThreads.add(Thread.currentThread().getName())));
+
+        JdbcConnectionAccessorFactory factory = dataSource::getConnection;
+        val ids = new HashSet<Long>();
+        for (int i = 0; i < 500; i++) {
+            ids.add(generator.nextId("double_buffered_id", 2, 1, 20, factory).getLast());
+        }
+
+        Assertions.assertThat(ids).hasSize(500);
+        Assertions.assertThat(refillThreads).isNotEmpty();
+        // only the very first fetch runs on caller thread, the rest are refilled in background
+        Assertions.assertThat(refillThreads.stream().skip(1)).allMatch(n -> n.startsWith("id-refill-"));
+    }
+
+    @Test
+    void reservesRangeOfStepSpacedIds() {
+        val generator = generator(p -> {
+        });
+        JdbcConnectionAccessorFactory factory = dataSource::getConnection;
+
+        val single = generator.nextLongId("range_id", 3, 10, factory);
+        val range = generator.reserve("range_id", 25, 3, 10, factory);
+
+        Assertions.assertThat(range.count()).isEqualTo(25);
+        Assertions.assertThat(range.first()).isEqualTo(single + 3);
+        Assertions.assertThat(range.stream().toArray()).containsExactly(range.toArray());
+        Assertions.assertThat(range.stream().distinct().count()).isEqualTo(25);
+        Assertions.assertThat(range.stream()).allMatch(id -> (id - single) % 3 == 0);
+    }
+
+    @Test
+    void adaptsFetchSizeToAllocationRate() {
+        val generator = generator(p -> {
+            p.setAsyncRefill(true);
+            p.setAdaptiveFetchSize(true);
+            p.setMinFetchSize(5);
+            p.setMaxFetchSize(1000);
+            p.setTargetRefillIntervalMillis(1000);
+        });
+        val fetchedBlocks = new ConcurrentLinkedQueue<Long>();
+        generator.setRecordUpdatedPeeks(List.of((e, b) -> fetchedBlocks.add(b.max() - b.prev())));
+
+        JdbcConnectionAccessorFactory factory = dataSource::getConnection;
+        val ids = new HashSet<Long>();
+        for (int i = 0; i < 20_000; i++) {
+            ids.add(generator.nextLongId("adaptive_id", 1, 5, factory));
+        }
+
+        Assertions.assertThat(ids).hasSize(20_000);
+        // hot entity grows from fetch size 5 up to max fetch size
+        Assertions.assertThat(fetchedBlocks).contains(1000L);
+        Assertions.assertThat(fetchedBlocks).allMatch(block -> block >= 5 && block <= 1000);
+        // the adaptive size is only fetched, the stored fetch size stays the configured one
+        Assertions.assertThat(jdbcTemplate.queryForObject(
+            "select fetch_size from test.id_table where entity_name = ?", Integer.class, "adaptive_id"
+        )).isEqualTo(5);
+    }
+
+    @Test
+    void incrementsExistingRecordInOneStatement() {
+        val generator = generator(p -> {
+        });
+        val selectedTimes = new ConcurrentLinkedQueue<String>();
+        val updated = new ConcurrentLinkedQueue<BatchIdResult>();
+        generator.setRecordFetchedPeeks(List.of((e, b) -> selectedTimes.add(e)));
+        generator.setRecordUpdatedPeeks(List.of((e, b) -> updated.add(b)));
+
+        JdbcConnectionAccessorFactory factory = dataSource::getConnection;
+        val ids = new HashSet<Long>();
+        ids.add(generator.nextLongId("single_statement_id", 2, 10, factory));
+        val selectedOnInit = selectedTimes.size();
+        for (int i = 0; i < 20; i++) {
+            generator.reserve("single_statement_id", 7, 2, 10, factory).forEachId(ids::add);
+        }
+
+        Assertions.assertThat(ids).hasSize(1 + 20 * 7);
+        Assertions.assertThat(updated).isNotEmpty();
+        // existing id record is incremented by update ... returning, never selected for update again
+        Assertions.assertThat(selectedTimes).hasSize(selectedOnInit);
+        Assertions.assertThat(updated).allMatch(b -> b.max() - b.prev() == 20L);
+    }
+
+    @Test
+    void optimisticNodesNeverHandOutSameId() {
+        val idGenProperties = idGenProperties(p -> p.setAllocationMode(AllocationMode.OPTIMISTIC));
+        val fetched = new AtomicInteger();
+        val updated = new AtomicInteger();
+        JdbcConnectionAccessorFactory factory = dataSource::getConnection;
+
+        // each generator acts as one app node competing on the same id record
+        val nodes = IntStream.range(0, 4).mapToObj(i -> {
+            val generator = generatorOf(idGenProperties);
+            generator.setRecordFetchedPeeks(List.of((e, b) -> fetched.incrementAndGet()));
+            generator.setRecordUpdatedPeeks(List.of((e, b) -> updated.incrementAndGet()));
+            return generator;
+        }).toList();
+        nodes.getFirst().nextLongId("optimistic_id", 1, 5, factory);
+
+        val ids = nodes.parallelStream()
+            .flatMap(generator -> IntStream.range(0, 100)
+                .mapToObj(i -> generator.nextLongId("optimistic_id", 1, 5, factory)))
+            .toList();
+
+        Assertions.assertThat(new HashSet<>(ids)).hasSize(400);
+        Assertions.assertThat(updated.get()).isPositive();
+        // every conflict costs one more unlocked read
+        Assertions.assertThat(fetched.get()).isGreaterThanOrEqualTo(updated.get());
+        log.info("optimistic allocation, reads {}, swaps {}", fetched.get(), updated.get());
+    }
+
+    @Test
+    void refillsSeveralEntitiesInOneConnection() {
+        val idGenProperties = idGenProperties(p -> {
+        });
+        val lockingDialect = new IdGenDialectH2(idGenProperties) {
+            @Override
+            public boolean supportsIncrementAndReturn() {
+                return false;
+            }
+        };
+        val locking = new LongIdDbTableGenerator(lockingDialect, idGenProperties);
+        val incrementing = generatorOf(idGenProperties);
+        val selected = new AtomicInteger();
+        incrementing.setRecordFetchedPeeks(List.of((e, b) -> selected.incrementAndGet()));
+
+        for (val generator : List.of(locking, incrementing)) {
+            val prefix = generator == locking ? "locked_" : "incremented_";
+            val opened = new AtomicInteger();
+            JdbcConnectionAccessorFactory factory = () -> {
+                opened.incrementAndGet();
+                return dataSource.getConnection();
+            };
+            val counts = new LinkedHashMap<String, Integer>();
+            counts.put(prefix + "batch_all", 1);
+            counts.put(prefix + "batch_rule_all", 1);
+            counts.put(prefix + "batch_rule_desc_all", 1);
+            val initial = generator.reserveAll(counts, 1, 5, factory);
+            Assertions.assertThat(initial.values()).allMatch(r -> r.count() == 1);
+
+            opened.set(0);
+            selected.set(0);
+            counts.replaceAll((e, c) -> 10);
+            val ranges = generator.reserveAll(counts, 1, 5, factory);
+
+            // all 3 entities run dry and are refilled by one connection
+            Assertions.assertThat(opened.get()).isEqualTo(1);
+            Assertions.assertThat(ranges.keySet()).containsExactlyElementsOf(counts.keySet());
+            ranges.forEach((e, r) -> {
+                Assertions.assertThat(r.count()).isEqualTo(10);
+                Assertions.assertThat(r.stream().distinct().count()).isEqualTo(10);
+                Assertions.assertThat(r.first()).isEqualTo(initial.get(e).first() + 1);
+            });
+        }
+        // with update ... returning no id record is selected for update
+        Assertions.assertThat(selected.get()).isZero();
+    }
+
+    @Test
+    void prewarmsConfiguredEntitiesBeforeReadiness() {
+        // prewarm of application ready had fetched the segments before the application accepted traffic
+        Assertions.assertThat(PrewarmReadinessProbe.PREWARMED_AT_READINESS)
+            .containsExactlyInAnyOrder("prewarm_app_id", "prewarm_app_other_id");
+
+        JdbcConnectionAccessorFactory noDb = () -> {
+            throw new SQLException("should be served by prewarmed segment");
+        };
+        val generator = TableIdGeneratorConfig.getLongIdGenerator.apply("main");
+        for (val entityName : List.of("prewarm_app_id", "prewarm_app_other_id")) {
+            val range = generator.reserve(entityName, 10, noDb);
+            Assertions.assertThat(range.count()).isEqualTo(10);
+            Assertions.assertThat(range.first()).isEqualTo(1L);
+        }
+    }
+
+    @Test
+    void uuidV7StaysOrderedWhenClockGoesBack() {
+        val now = new AtomicLong(1_700_000_000_000L);
+        val generator = new UuidV7Generator(now::get);
+
+        val ids = new ArrayList<UUID>();
+        for (int i = 0; i < 10_000; i++) {
+            if (i == 5_000) {
+                // clock goes backward
+                now.addAndGet(-1_000);
+            }
+            ids.add(generator.next());
+        }
+
+        Assertions.assertThat(ids).allMatch(id -> id.version() == 7 && id.variant() == 2);
+        Assertions.assertThat(UuidV7Generator.timestampOf(ids.getFirst())).isEqualTo(1_700_000_000_000L);
+        // strictly increasing by bytes, the order of uuid column in db
+        for (int i = 1; i < ids.size(); i++) {
+            Assertions.assertThat(Long.compareUnsigned(
+                ids.get(i - 1).getMostSignificantBits(),
+                ids.get(i).getMostSignificantBits()
+            )).isNegative();
+        }
+
+        val concurrentIds = IntStream.range(0, 8).parallel()
+            .mapToObj(i -> UuidV7Generator.INSTANCE.nextId("any", 1_000, null))
+            .flatMap(List::stream)
+            .collect(Collectors.toSet());
+        Assertions.assertThat(concurrentIds).hasSize(8_000);
+    }
+
+    @Test
+    void snowflakeIdsCarryLeasedWorkerId() throws SQLException {
+        val idGenProperties = idGenPropertiesGroup.getConfigs().get("main").getIdGenerator();
+        val dialect = new IdGenDialectH2(idGenProperties);
+        try (
+            val lease1 = new WorkerIdLease(dialect, idGenProperties, dataSource::getConnection).start();
+            val lease2 = new WorkerIdLease(dialect, idGenProperties, dataSource::getConnection).start()
+        ) {
+            Assertions.assertThat(lease1.workerId()).isNotEqualTo(lease2.workerId());
+
+            // clock moves 1 ms every 1000 reads, sequence of one millisecond runs out on the way
+            val reads = new AtomicLong();
+            val now = System.currentTimeMillis();
+            val generator = new SnowflakeIdGenerator(idGenProperties, lease1, () -> now + reads.incrementAndGet() / 1000);
+            val range = generator.reserve("snowflake_id", 10_000, null);
+            val ids = range.toArray();
+            Assertions.assertThat(ids).hasSize(10_000).isSorted();
+            Assertions.assertThat(Arrays.stream(ids).distinct().count()).isEqualTo(10_000);
+            Assertions.assertThat(Arrays.stream(ids)).allMatch(id -> ((id >>> 12) & 1023) == lease1.workerId());
+
+            val backward = new SnowflakeIdGenerator(idGenProperties, lease1, new LongSupplier() {
+                long calls = 0;
+
+                @Override
+                public long getAsLong() {
+                    return calls++ == 0 ? now : now - 1_000;
+                }
+            });
+            backward.nextLongId("snowflake_id", null);
+            Assertions.assertThatThrownBy(() -> backward.nextLongId("snowflake_id", null))
+                .isInstanceOf(IdGenerationException.class)
+                .hasMessageContaining("clock moved backwards");
+        }
+
+        // worker id taken over while db is down, renewal keeps trying until db is back
+        val leaseProperties = idGenProperties(p -> p.setWorkerLeaseMillis(300));
+        val allowedOpens = new AtomicInteger(Integer.MAX_VALUE);
+        val failedOpens = new AtomicInteger();
+        val takeOver = new AtomicReference<String>();
+        JdbcConnectionAccessorFactory flaky = () -> {
+            if (allowedOpens.getAndDecrement() <= 0) {
+                failedOpens.incrementAndGet();
+                throw new SQLException("db down");
+            }
+            val workerRecord = takeOver.getAndSet(null);
+            if (null != workerRecord) {
+                // another node takes the record over, the db goes down after this open of the renewal
+                try (
+                    val conn = dataSource.getConnection();
+                    val ps = conn.prepareStatement("update test.id_table set prev_value = prev_value + 1 where entity_name = ?")
+                ) {
+                    ps.setString(1, workerRecord);
+                    Assertions.assertThat(ps.executeUpdate()).isEqualTo(1);
+                }
+                allowedOpens.set(0);
+            }
+            return dataSource.getConnection();
+        };
+        try (val lease = new WorkerIdLease(dialect, leaseProperties, flaky).start()) {
+            val generator = new SnowflakeIdGenerator(leaseProperties, lease);
+            generator.nextLongId("snowflake_id", null);
+            takeOver.set(leaseProperties.getWorkerLeasePrefix() + lease.workerId());
+            awaitUntil(() -> failedOpens.get() >= 2);
+            Assertions.assertThatThrownBy(() -> generator.nextLongId("snowflake_id", null))
+                .isInstanceOf(IdGenerationException.class);
+
+            allowedOpens.set(Integer.MAX_VALUE);
+            awaitUntil(() -> lease.isValid(System.currentTimeMillis()));
+            Assertions.assertThat(generator.nextLongId("snowflake_id", null)).isPositive();
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) {
+        val deadline = System.currentTimeMillis() + 5_000;
+        while (!condition.getAsBoolean()) {
+            Assertions.assertThat(System.currentTimeMillis()).as("condition not met in time").isLessThan(deadline);
+            LockSupport.parkNanos(10_000_000);
+        }
+    }
+
+    @Test
+    void shardedIdsInterleaveAndSkipDownShard() {
+        jdbcTemplate.execute("create table if not exists test.id_table_shard1 as select * from test.id_table where 1 = 0");
+        val shards = new ArrayList<ShardedLongIdGenerator.Shard>();
+        val downCalls = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            final int shard = i;
+            val shardProperties = idGenProperties(p -> {
+                p.setInitialValue(shard);
+                if (shard == 1) {
+                    p.setTable("id_table_shard1");
+                }
+            });
+            JdbcConnectionAccessorFactory downShard = () -> {
+                downCalls.incrementAndGet();
+                throw new SQLException("shard down");
+            };
+            JdbcConnectionAccessorFactory factory = i < 2 ? dataSource::getConnection : downShard;
+            shards.add(new ShardedLongIdGenerator.Shard(
+                "shard" + i,
+                generatorOf(shardProperties),
+                factory
+            ));
+        }
+        val generator = new ShardedLongIdGenerator(shards, idGenPropertiesGroup.getConfigs().get("main").getIdGenerator());
+
+        val ids = new ArrayList<Long>();
+        for (int i = 0; i < 30; i++) {
+            generator.reserve("sharded_id", 5, null).forEachId(ids::add);
+        }
+
+        Assertions.assertThat(new HashSet<>(ids)).hasSize(150);
+        // shard k hands out k (mod 3), shard 2 is down and skipped after first failure
+        Assertions.assertThat(ids.stream().map(id -> id % 3).collect(Collectors.toSet())).containsExactlyInAnyOrder(0L, 1L);
+        Assertions.assertThat(downCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void assignsAggregateIdsWithOneReservation() {
+        val idGenProperties = idGenProperties(p -> {
+        });
+        val reserveAllCalls = new AtomicInteger();
+        val generator = new LongIdDbTableGenerator(new IdGenDialectH2(idGenProperties), idGenProperties) {
+            @Override
+            public Map<String, LongIdRange> reserveAll(Map<String, Integer> counts, JdbcConnectionAccessorFactory factory) {
+                reserveAllCalls.incrementAndGet();
+                return super.reserveAll(counts, factory);
+            }
+        };
+        val callback = new BeforeConvertCallbackForLong(generator, dataSource, null);
+
+        val batches = IntStream.range(0, 20)
+            .mapToObj(i -> Batch.builder()
+                .companyId(i)
+                .batchName("bulk")
+                .batchRules(IntStream.range(0, 50)
+                    .mapToObj(r -> new BatchRule((Long) null, "rule" + r))
+                    .toList())
+                .build())
+            .toList();
+        batches.getFirst().putGeneratedId(Long.MAX_VALUE);
+        callback.assignIds(batches);
+
+        Assertions.assertThat(reserveAllCalls.get()).isEqualTo(1);
+        Assertions.assertThat(batches.getFirst().peekId()).isEqualTo(Long.MAX_VALUE);
+        Assertions.assertThat(batches.stream().map(Batch::peekId).distinct()).hasSize(20);
+        Assertions.assertThat(batches.stream().flatMap(b -> b.getBatchRules().stream()).map(BatchRule::peekId))
+            .doesNotContainNull()
+            .doesNotHaveDuplicates()
+            .hasSize(1_000);
+
+        // already assigned, nothing to reserve when data-jdbc calls back per aggregate
+        batches.forEach(callback::onBeforeConvert);
+        Assertions.assertThat(reserveAllCalls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void refillsThroughDedicatedPool() throws SQLException {
+        val idGenProperties = idGenProperties(p -> {
+            p.setDedicatedPoolSize(1);
+            p.setDedicatedPoolConnectionTimeoutMillis(300);
+        });
+        try (val pool = DedicatedIdPool.create("test15", idGenProperties, null, dataSource)) {
+            Assertions.assertThat(pool).isNotNull();
+            Assertions.assertThat(pool.getPoolName()).isEqualTo("id-test15");
+            val generator = generatorOf(idGenProperties);
+            generator.setDedicatedConnectionFactory(pool::getConnection);
+
+            JdbcConnectionAccessorFactory applicationPoolExhausted = () -> {
+                throw new SQLException("application pool exhausted");
+            };
+            val range = generator.reserve("dedicated_pool_id", 10, 1, 10, applicationPoolExhausted);
+            Assertions.assertThat(range.count()).isEqualTo(10);
+
+            // the only connection of the dedicated pool is taken, refill times out instead of stalling
+            try (val ignored = pool.getConnection()) {
+                Assertions.assertThatThrownBy(() -> generator.reserve("dedicated_pool_id", 1, 1, 10, applicationPoolExhausted))
+                    .isInstanceOf(IdGenerationException.class);
+            }
+        }
+    }
+
+    @Test
+    void publishesRefillMetrics() {
+        val registry = new SimpleMeterRegistry();
+        val generator = generator(p -> {
+        });
+        generator.setMetrics(new MicrometerIdGeneratorMetrics(registry, "metrics"));
+
+        generator.reserve("metrics_id", 15, 1, 10, dataSource::getConnection);
+        Assertions.assertThatThrownBy(() -> generator.reserve("metrics_id", 10, 1, 10, () -> {
+            throw new SQLException("db down");
+        })).isInstanceOf(IdGenerationException.class);
+
+        Assertions.assertThat(registry.get(MicrometerIdGeneratorMetrics.REFILL).tag("entity", "metrics_id").timer().count())
+            .isEqualTo(1);
+        Assertions.assertThat(registry.get(MicrometerIdGeneratorMetrics.REFILL_WAIT).tag("entity", "metrics_id").timer().count())
+            .isEqualTo(2);
+        Assertions.assertThat(registry.get(MicrometerIdGeneratorMetrics.ERRORS).tag("entity", "metrics_id").counter().count())
+            .isEqualTo(1);
+        // 20 fetched, 15 taken, the failed reservation took the 5 left before fetching
+        Assertions.assertThat(registry.get(MicrometerIdGeneratorMetrics.REMAINING).tag("entity", "metrics_id").gauge().value())
+            .isEqualTo(0);
+
+        // generators of configs are bound to the registry of application context
+        TableIdGeneratorConfig.getLongIdGenerator.apply("main").nextLongId("metrics_app_id", dataSource::getConnection);
+        Assertions.assertThat(meterRegistry.find(MicrometerIdGeneratorMetrics.REMAINING)
+            .tags("generator", "main", "entity", "metrics_app_id").gauge()).isNotNull();
+    }
+
+    @Test
+    void hibernateGeneratorResolvesOnceAndWrapsIds() {
+        // entities of the fallback id generator, as by @CustomizedTableIdGenerator without datasource
+        val batchIds = new DefaultBeforeExecutionGeneratorImpl("wrapped_batch_id", "", Batch.BatchId.class);
+        val taskIds = new DefaultBeforeExecutionGeneratorImpl("wrapped_task_id", "", Task.TaskId.class);
+        val longIds = new DefaultBeforeExecutionGeneratorImpl("wrapped_long_id", "", Long.class);
+        Stream.of(batchIds, taskIds, longIds).forEach(generator -> generator.setMaxPreallocation(1));
+        val owner = new Object();
+
+        val first = batchIds.generate(null, owner, null, EventType.INSERT);
+        Assertions.assertThat(first).isInstanceOf(Batch.BatchId.class);
+        Assertions.assertThat(((Batch.BatchId) first).id()).isPositive();
+        Assertions.assertThat(taskIds.generate(null, owner, null, EventType.INSERT)).isInstanceOf(Task.TaskId.class);
+        Assertions.assertThat(longIds.generate(null, owner, null, EventType.INSERT)).isInstanceOf(Long.class);
+        Assertions.assertThat(batchIds.generate(null, owner, null, EventType.UPDATE)).isNull();
+
+        // generator and constructor were resolved on first insert, not looked up again
+        val registered = TableIdGeneratorConfig.getLongIdGenerator;
+        TableIdGeneratorConfig.getLongIdGenerator = name -> {
+            throw new IllegalStateException("id generator resolved again");
+        };
+        try {
+            val second = batchIds.generate(null, owner, null, EventType.INSERT);
+            Assertions.assertThat(second).isEqualTo(new Batch.BatchId(((Batch.BatchId) first).id() + 1));
+        } finally {
+            TableIdGeneratorConfig.getLongIdGenerator = registered;
+        }
+
+        val unregistered = new DefaultBeforeExecutionGeneratorImpl("unregistered_id", "no_such_config", Long.class);
+        unregistered.setMaxPreallocation(1);
+        Assertions.assertThatThrownBy(() -> unregistered.generate(null, owner, null, EventType.INSERT))
+            .isInstanceOf(IdGenerationException.class);
+        val noConstructor = new DefaultBeforeExecutionGeneratorImpl("no_constructor_id", "", UUID.class);
+        noConstructor.setMaxPreallocation(1);
+        Assertions.assertThatThrownBy(() -> noConstructor.generate(null, owner, null, EventType.INSERT))
+            .isInstanceOf(IdGenerationException.class);
+    }
+
+    /**
+     * id records of prewarmed entities found when readiness turns to accepting traffic
+     */
+    @TestConfiguration
+    static class PrewarmReadinessProbe {
+        static final Set<String> PREWARMED_AT_READINESS = ConcurrentHashMap.newKeySet();
+
+        private final JdbcTemplate jdbcTemplate;
+
+        PrewarmReadinessProbe(JdbcTemplate jdbcTemplate) {
+            this.jdbcTemplate = jdbcTemplate;
+        }
+
+        @EventListener
+        void onReadiness(AvailabilityChangeEvent<ReadinessState> event) {
+            if (ReadinessState.ACCEPTING_TRAFFIC != event.getState()) {
+                return;
+            }
+            PREWARMED_AT_READINESS.addAll(jdbcTemplate.queryForList(
+                "select entity_name from test.id_table where entity_name like 'prewarm_%'", String.class
+            ));
+        }
+    }
+
+    /**
+     * copy of the id generator properties of main, refilled synchronously unless the customizer says otherwise,
+     * so a test never changes the generators of the application
+     */
+    private IdGenProperties idGenProperties(Consumer<IdGenProperties> customizer) {
+        val idGenProperties = new IdGenProperties();
+        BeanUtils.copyProperties(idGenPropertiesGroup.getConfigs().get("main").getIdGenerator(), idGenProperties);
+        idGenProperties.setAsyncRefill(false);
+        customizer.accept(idGenProperties);
+        return idGenProperties;
+    }
+
+    private LongIdDbTableGenerator generator(Consumer<IdGenProperties> customizer) {
+        return generatorOf(idGenProperties(customizer));
+    }
+
+    private static LongIdDbTableGenerator generatorOf(IdGenProperties idGenProperties) {
+        return new LongIdDbTableGenerator(new IdGenDialectH2(idGenProperties), idGenProperties);
+    }
+
     @Test
     void test03() {
         val valueColumnName = "value_col";
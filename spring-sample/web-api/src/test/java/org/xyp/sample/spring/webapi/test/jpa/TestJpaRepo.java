@@ -1,5 +1,6 @@
 package org.xyp.sample.spring.webapi.test.jpa;
 
+import jakarta.persistence.EntityManager;
 import lombok.extern.slf4j.Slf4j;
 import lombok.val;
 import org.assertj.core.api.Assertions;
@@ -26,6 +27,7 @@ import org.xyp.sample.spring.webapi.domain.task.repository.jpa2.StockRepository;
 import org.xyp.sample.spring.webapi.domain.task.repository.mybatis.BatchDaoMybatis;
 import org.xyp.sample.spring.webapi.domain.task.service.BatchService;
 import org.xyp.shared.db.id.generator.table.config.TableIdGeneratorSpringConfig;
+import org.xyp.shared.db.id.generator.table.hibernate.SessionIdPreallocation;
 import org.xyp.shared.function.Fun;
 
 import java.util.List;
@@ -64,6 +66,8 @@ class TestJpaRepo {
     BatchService batchService;
     @Autowired
     StockRepository stockRepository;
+    @Autowired
+    EntityManager entityManager;
 
     Batch.BatchId id = null;
     Batch bt = null;
@@ -138,6 +142,26 @@ class TestJpaRepo {
         Assertions.assertThat(last.getId()).isNotNull();
     }
 
+    @Test
+    @Order(11)
+    @DisplayName("test save many tasks with ids reserved at once")
+    void testSaveTaskPreallocated() {
+        val btch = batchDaoJpa.findById(id).get();
+        SessionIdPreallocation.expect(entityManager, Task.class, 300);
+        val tasks = IntStream.range(0, 300)
+            .mapToObj(i -> Task.builder().companyId(i).employeeId("em")
+                .batch(Batch.BatchRef.of(btch))
+                .build())
+            .toList();
+        val ids = taskDaoJpa.saveAll(tasks).stream()
+            .map(t -> t.getId().id())
+            .toList();
+        Assertions.assertThat(ids).hasSize(300).doesNotHaveDuplicates().isSorted();
+        // reservations live in the session, not beyond it
+        Assertions.assertThat(entityManager.getProperties().values())
+            .anyMatch(SessionIdPreallocation.class::isInstance);
+    }
+
     @Test
     @Order(20)
     @DisplayName("test save and fetch batch")